@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+
+# Evaluate messages without the interactive shell, starting as fast as possible.
+# The first run, and any run after sources change, builds an AOT-processed jar
+# and a class data sharing archive, which later runs reuse.
+#
+# Usage: ./scripts/evaluate.sh --message=smoking,vaping --group=english_teen [--max-iterations=1]
+
+script_dir=$(cd "$(dirname "$0")" && pwd)
+project_dir=$(cd "$script_dir/.." && pwd)
+app_dir="$project_dir/target/cli"
+archive="$app_dir/application.jsa"
+
+source "$script_dir/support/check_env.sh" > /dev/null || exit 1
+
+cd "$project_dir" || exit 1
+
+if [ ! -f "$archive" ] || [ -n "$(find src pom.xml -newer "$archive" -print -quit)" ]; then
+    echo "Building AOT jar and CDS archive..."
+    ./mvnw -q -Paot -Dmaven.test.skip=true package || exit 1
+    rm -rf "$app_dir"
+    java -Djarmode=tools -jar target/grouper-*.jar extract --destination "$app_dir" || exit 1
+    # Training run: start the application context, then exit, recording loaded classes
+    java -XX:ArchiveClassesAtExit="$archive" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+        -jar "$app_dir"/grouper-*.jar --spring.profiles.active=cli || exit 1
+fi
+
+exec java -XX:SharedArchiveFile="$archive" -Dspring.aot.enabled=true \
+    -jar "$app_dir"/grouper-*.jar --spring.profiles.active=cli "$@"
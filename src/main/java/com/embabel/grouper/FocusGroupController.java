@@ -0,0 +1,112 @@
+package com.embabel.grouper;
+
+import com.embabel.grouper.agent.CapacityScheduler;
+import com.embabel.grouper.agent.FocusGroupRunner;
+import com.embabel.grouper.agent.RunOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP API for focus groups. Runs start in the background:
+ * clients get a run id immediately, then follow progress over Server-Sent Events.
+ */
+@RestController
+@RequestMapping("/api/focus-groups")
+class FocusGroupController {
+
+    /**
+     * Most runs we remember. The oldest are forgotten first.
+     */
+    private static final int MAX_RUNS = 1000;
+
+    /**
+     * Most capacity weight a client may ask for. Clients can yield capacity to other runs, but not take more
+     */
+    static final double MAX_WEIGHT = 1.0;
+
+    /**
+     * Request to start a run. Only message and group are required.
+     * The express lane is reserved for single iteration runs, which the server puts there itself,
+     * so one client can't take capacity from everyone else's runs.
+     */
+    record RunRequest(
+            String message,
+            String group,
+            String tenant,
+            CapacityScheduler.Lane lane,
+            Double weight,
+            Integer maxIterations) {
+
+        RunOptions options() {
+            return new RunOptions(
+                    tenant,
+                    lane == CapacityScheduler.Lane.EXPRESS ? null : lane,
+                    weight == null ? MAX_WEIGHT : Math.min(weight, MAX_WEIGHT),
+                    maxIterations == null ? 0 : maxIterations);
+        }
+    }
+
+    record RunStatus(String id, String message, String group, boolean done, String result) {
+    }
+
+    private record Run(String id, String message, String group, SseRunListener listener) {
+    }
+
+    private final FocusGroupRunner focusGroupRunner;
+
+    private final Map<String, Run> runs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Run> eldest) {
+            return size() > MAX_RUNS;
+        }
+    };
+
+    FocusGroupController(FocusGroupRunner focusGroupRunner) {
+        this.focusGroupRunner = focusGroupRunner;
+    }
+
+    @PostMapping
+    ResponseEntity<RunStatus> start(@RequestBody RunRequest request) {
+        var listener = new SseRunListener();
+        var handle = focusGroupRunner.start(request.message(), request.group(), request.options(), listener);
+        var run = new Run(handle.id(), handle.message(), handle.group(), listener);
+        synchronized (runs) {
+            runs.put(run.id(), run);
+        }
+        return ResponseEntity.accepted().body(status(run));
+    }
+
+    @GetMapping("/{id}")
+    ResponseEntity<RunStatus> status(@PathVariable String id) {
+        var run = find(id);
+        return run == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status(run));
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        var run = find(id);
+        return run == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(run.listener().subscribe());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String badRequest(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+
+    private Run find(String id) {
+        synchronized (runs) {
+            return runs.get(id);
+        }
+    }
+
+    private static RunStatus status(Run run) {
+        return new RunStatus(run.id(), run.message(), run.group(), run.listener().isDone(), run.listener().result());
+    }
+}
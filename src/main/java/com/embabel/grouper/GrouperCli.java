@@ -0,0 +1,82 @@
+package com.embabel.grouper;
+
+import com.embabel.grouper.agent.FocusGroupRunner;
+import com.embabel.grouper.agent.RunOptions;
+import com.embabel.grouper.domain.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Non-interactive entry point for scripted evaluations, active under the cli profile.
+ * Runs each message against the group, prints the results and exits.
+ * For example:
+ * <pre>
+ * java -jar grouper.jar --spring.profiles.active=cli --message=smoking,vaping --group=english_teen
+ * </pre>
+ * Messages run concurrently, sharing LLM capacity. One iteration each by default.
+ */
+@Component
+@Profile("cli")
+record GrouperCli(
+        FocusGroupRunner focusGroupRunner,
+        ConfigurableApplicationContext applicationContext) implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrouperCli.class);
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        var messages = values(args, "message", "smoking");
+        var group = values(args, "group", "english_teen").getFirst();
+        var maxIterations = Integer.parseInt(values(args, "max-iterations", "1").getFirst());
+        var options = new RunOptions(null, null, 1.0, maxIterations);
+
+        int failures = 0;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var results = new ArrayList<Future<Model.BestScoringVariants>>();
+            for (var message : messages) {
+                results.add(executor.submit(() -> focusGroupRunner.run(message, group, options)));
+            }
+            for (int i = 0; i < messages.size(); i++) {
+                System.out.printf("== %s / %s ==%n", messages.get(i), group);
+                try {
+                    var best = results.get(i).get();
+                    System.out.println(best);
+                    System.out.println(best.profile());
+                } catch (ExecutionException e) {
+                    failures++;
+                    logger.error("Evaluation of {} failed", messages.get(i), e.getCause());
+                    System.out.println("FAILED: " + e.getCause().getMessage());
+                }
+            }
+        }
+        int exitCode = failures == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    /**
+     * Values of an option, which may be repeated or comma separated
+     */
+    private static List<String> values(ApplicationArguments args, String option, String defaultValue) {
+        var values = args.containsOption(option) ?
+                args.getOptionValues(option).stream()
+                        .flatMap(value -> Arrays.stream(value.split(",")))
+                        .map(String::trim)
+                        .filter(value -> !value.isEmpty())
+                        .toList() :
+                List.<String>of();
+        return values.isEmpty() ? List.of(defaultValue) : values;
+    }
+}
@@ -1,12 +1,24 @@
 package com.embabel.grouper;
 
+import com.embabel.grouper.agent.GrouperProperties;
 import com.embabel.grouper.domain.MessageVariantsRepository;
 import com.embabel.grouper.domain.ParticipantRepository;
+import com.embabel.grouper.domain.PresentationQueue;
+import com.embabel.grouper.domain.ReactionHistory;
+import com.embabel.grouper.domain.support.FilePresentationQueue;
+import com.embabel.grouper.domain.support.JsonlSpanExporter;
+import com.embabel.grouper.domain.support.JsonlReactionHistory;
 import com.embabel.grouper.domain.support.YmlMessageVariantsRepository;
 import com.embabel.grouper.domain.support.YmlParticipantRepository;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+
 @Configuration
 class GrouperConfiguration {
 
@@ -19,4 +31,32 @@ class GrouperConfiguration {
     MessageVariantsRepository messageVariantsRepository() {
         return new YmlMessageVariantsRepository();
     }
+
+    @Bean
+    ReactionHistory reactionHistory(GrouperProperties properties) {
+        return properties.historyFile() == null || properties.historyFile().isBlank() ?
+                ReactionHistory.NONE :
+                new JsonlReactionHistory(Path.of(properties.historyFile()));
+    }
+
+    /**
+     * Spans are exported to the trace file if there is one, otherwise tracing is a no-op
+     */
+    @Bean
+    OpenTelemetry openTelemetry(GrouperProperties properties) {
+        if (properties.traceFile() == null || properties.traceFile().isBlank()) {
+            return OpenTelemetry.noop();
+        }
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder()
+                        .addSpanProcessor(BatchSpanProcessor.builder(
+                                new JsonlSpanExporter(Path.of(properties.traceFile()))).build())
+                        .build())
+                .build();
+    }
+
+    @Bean
+    PresentationQueue presentationQueue(GrouperProperties properties) {
+        return new FilePresentationQueue(Path.of(properties.distribution().queueDirectory()));
+    }
 }
@@ -1,51 +1,59 @@
 package com.embabel.grouper;
 
-import com.embabel.agent.api.common.autonomy.AgentInvocation;
-import com.embabel.agent.core.AgentPlatform;
-import com.embabel.agent.core.Budget;
-import com.embabel.agent.core.ProcessOptions;
-import com.embabel.grouper.agent.GrouperProperties;
-import com.embabel.grouper.domain.MessageVariantsRepository;
-import com.embabel.grouper.domain.Model;
-import com.embabel.grouper.domain.ParticipantRepository;
+import com.embabel.grouper.agent.Campaign;
+import com.embabel.grouper.agent.FocusGroupRunner;
+import com.embabel.grouper.agent.RunOptions;
+import com.embabel.grouper.domain.support.SnapshotStore;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 @ShellComponent
 record GrouperShell(
-        AgentPlatform agentPlatform,
-        ParticipantRepository participantRepository,
-        MessageVariantsRepository messageVariantsRepository,
-        GrouperProperties config) {
+        FocusGroupRunner focusGroupRunner,
+        Campaign campaign) {
 
     @ShellMethod("Test a given message against a given group")
     String focusGroup(
             @ShellOption(help = "The id of the message", defaultValue = "smoking") String message,
-            @ShellOption(help = "The group to test again", defaultValue = "english_teen") String group) {
-        var participants = participantRepository.findByGroup(group);
-        var messageVariants = messageVariantsRepository.findByName(message);
-
-        if (participants.isEmpty()) {
-            return "Unable to resolve participants by group " + group;
-        }
-        if (messageVariants == null) {
-            return "Unable to find messaging for message " + message;
+            @ShellOption(help = "The group to test again", defaultValue = "english_teen") String group,
+            @ShellOption(help = "Maximum iterations, overriding configuration if greater than 0", defaultValue = "0") int maxIterations) {
+        try {
+            return focusGroupRunner.run(message, group,
+                    new RunOptions(null, null, 1.0, maxIterations)).toString();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
         }
+    }
 
-        var focusGroup = new Model.FocusGroup(participants);
-        var positioning = new Model.Positioning(List.of(messageVariants));
+    @ShellMethod("Continue evolving a message from a snapshot of an earlier run")
+    String fork(
+            @ShellOption(help = "Snapshot file, written to the snapshot directory after each iteration") String snapshot,
+            @ShellOption(help = "The group to test against, if not the snapshot's group", defaultValue = ShellOption.NULL) String group,
+            @ShellOption(help = "Maximum iterations, overriding configuration if greater than 0", defaultValue = "0") int maxIterations) {
+        try {
+            return focusGroupRunner.fork(SnapshotStore.read(Path.of(snapshot)), group,
+                    new RunOptions(null, null, 1.0, maxIterations)).toString();
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            return e.getMessage();
+        }
+    }
 
-        var bestScoringVariants = AgentInvocation.builder(agentPlatform)
-                .options(new ProcessOptions.Builder()
-                        .verbosity(v -> v.showPrompts(config().showPrompts()))
-                        .budget(new Budget(config.maxCost(), Integer.MAX_VALUE, Integer.MAX_VALUE))
-                        .build())
-                .build(Model.BestScoringVariants.class)
-                .invoke(focusGroup, participants, positioning);
-        return bestScoringVariants.toString();
+    @ShellMethod("Test every message matching a glob against every group matching a glob")
+    String campaign(
+            @ShellOption(help = "Glob over message names", defaultValue = "*") String messages,
+            @ShellOption(help = "Glob over group names", defaultValue = "*") String groups,
+            @ShellOption(help = "File to write results to, one JSON line per run", defaultValue = "campaign.jsonl") String output,
+            @ShellOption(help = "Maximum iterations, overriding configuration if greater than 0", defaultValue = "0") int maxIterations) {
+        try {
+            return campaign.run(messages, groups, maxIterations, Path.of(output)).toString();
+        } catch (IllegalArgumentException | IOException e) {
+            return e.getMessage();
+        }
     }
 
 }
@@ -0,0 +1,255 @@
+package com.embabel.grouper;
+
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.Model;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Streams events from one focus group run to any number of
+ * Server-Sent Event subscribers. The most recent events are retained,
+ * so subscribers joining late see the run so far.
+ * Each subscriber has its own queue and sending thread, so a slow client never holds up presentations.
+ * A subscriber that falls too far behind is disconnected, and can reconnect.
+ */
+class SseRunListener implements FocusGroupListener {
+
+    record ReactionEvent(
+            String participantId,
+            String participant,
+            String model,
+            String wording,
+            double score,
+            String positives,
+            String negatives,
+            List<String> quotes,
+            Instant timestamp
+    ) {
+    }
+
+    record ProgressEvent(int iteration, int completed, int total) {
+    }
+
+    record VariantScore(
+            String wording,
+            double normalizedScore,
+            double lowerBound,
+            double upperBound,
+            long count
+    ) {
+    }
+
+    record SnapshotEvent(int iteration, List<VariantScore> bestVariants, List<String> findings) {
+    }
+
+    record CompleteEvent(String result) {
+    }
+
+    record ErrorEvent(String error) {
+    }
+
+    private record Event(long id, String name, Object data) {
+    }
+
+    /**
+     * Most events retained for subscribers joining late
+     */
+    static final int RETAINED_EVENTS = 1000;
+
+    /**
+     * Most events queued for a subscriber before it's disconnected
+     */
+    private static final int SUBSCRIBER_BACKLOG = 2 * RETAINED_EVENTS;
+
+    private static final Event END = new Event(-1, "end", null);
+
+    private static final Event OVERFLOW = new Event(-1, "overflow", null);
+
+    /**
+     * Sends one subscriber's events on its own thread
+     */
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Event> queue = new LinkedBlockingQueue<>(SUBSCRIBER_BACKLOG);
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queue an event without blocking
+         *
+         * @return false if the subscriber has fallen too far behind
+         */
+        boolean offer(Event event) {
+            if (queue.offer(event)) {
+                return true;
+            }
+            queue.clear();
+            queue.offer(OVERFLOW);
+            return false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    var event = queue.take();
+                    if (event == END) {
+                        emitter.complete();
+                        return;
+                    }
+                    if (event == OVERFLOW) {
+                        emitter.completeWithError(new IllegalStateException("Subscriber fell behind"));
+                        return;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.id()))
+                            .name(event.name())
+                            .data(event.data()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                subscribers.remove(this);
+            }
+        }
+    }
+
+    private final Deque<Event> events = new ArrayDeque<>();
+
+    private long nextId;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile String result;
+
+    private volatile boolean done;
+
+    @Override
+    public void onReaction(Model.SpecificReaction specificReaction) {
+        var presentation = specificReaction.participantMessagePresentation();
+        var reaction = specificReaction.reaction();
+        publish("reaction", new ReactionEvent(
+                presentation.participant().id(),
+                presentation.participant().name(),
+                Model.Strata.MODEL.of(presentation.participant()),
+                presentation.messageVariant().wording(),
+                reaction.rating().score(),
+                reaction.positives(),
+                reaction.negatives(),
+                reaction.quotes(),
+                specificReaction.timestamp()));
+    }
+
+    @Override
+    public void onProgress(int iteration, int completed, int total) {
+        publish("progress", new ProgressEvent(iteration, completed, total));
+    }
+
+    @Override
+    public void onIteration(int iteration, Model.BestScoringVariants bestScoringVariants) {
+        publish("snapshot", new SnapshotEvent(
+                iteration,
+                bestScoringVariants.bestVariants().stream()
+                        .map(score -> new VariantScore(
+                                score.messageVariant().wording(),
+                                score.normalizedScore(),
+                                score.lowerBound(),
+                                score.upperBound(),
+                                score.count()))
+                        .toList(),
+                bestScoringVariants.findings()));
+    }
+
+    @Override
+    public void onComplete(Model.BestScoringVariants bestScoringVariants) {
+        result = bestScoringVariants.toString();
+        publish("complete", new CompleteEvent(result));
+        finish();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        publish("error", new ErrorEvent(String.valueOf(t.getMessage())));
+        finish();
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    String result() {
+        return result;
+    }
+
+    /**
+     * Subscribe, replaying the retained events
+     */
+    SseEmitter subscribe() {
+        return subscribe(new SseEmitter(0L));
+    }
+
+    /**
+     * Subscribe an emitter, replaying the retained events
+     */
+    SseEmitter subscribe(SseEmitter emitter) {
+        var subscriber = new Subscriber(emitter);
+        synchronized (events) {
+            events.forEach(subscriber::offer);
+            if (done) {
+                subscriber.offer(END);
+            } else {
+                subscribers.add(subscriber);
+            }
+        }
+        Runnable stop = () -> {
+            subscribers.remove(subscriber);
+            subscriber.offer(END);
+        };
+        subscriber.emitter.onCompletion(stop);
+        subscriber.emitter.onTimeout(stop);
+        subscriber.emitter.onError(t -> stop.run());
+        Thread.ofVirtual().name("sse-subscriber").start(subscriber);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Retain and queue an event. Never blocks on a client
+     */
+    private void publish(String name, Object data) {
+        synchronized (events) {
+            var event = new Event(nextId++, name, data);
+            events.addLast(event);
+            if (events.size() > RETAINED_EVENTS) {
+                events.removeFirst();
+            }
+            for (var subscriber : subscribers) {
+                if (!subscriber.offer(event)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    private void finish() {
+        synchronized (events) {
+            done = true;
+            subscribers.forEach(subscriber -> subscriber.offer(END));
+            subscribers.clear();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.MessageVariantsRepository;
+import com.embabel.grouper.domain.ParticipantRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every message matching a glob against every group matching a glob, in one process.
+ * All runs share the run plan cache, model clients and the capacity scheduler:
+ * they are scheduled as one tenant in the bulk lane, so interactive runs still get through.
+ * Each run's result is appended to a single JSON Lines file as it completes.
+ * A run whose result can't be written counts as failed.
+ */
+@Service
+public class Campaign {
+
+    private static final Logger logger = LoggerFactory.getLogger(Campaign.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Runs in progress at once. LLM calls are limited separately, by the capacity scheduler
+     */
+    private static final int MAX_CONCURRENT_RUNS = 16;
+
+    private final FocusGroupRunner focusGroupRunner;
+    private final ParticipantRepository participantRepository;
+    private final MessageVariantsRepository messageVariantsRepository;
+
+    public Campaign(
+            FocusGroupRunner focusGroupRunner,
+            ParticipantRepository participantRepository,
+            MessageVariantsRepository messageVariantsRepository) {
+        this.focusGroupRunner = focusGroupRunner;
+        this.participantRepository = participantRepository;
+        this.messageVariantsRepository = messageVariantsRepository;
+    }
+
+    record VariantResult(String wording, double score, double lowerBound, double upperBound) {
+    }
+
+    /**
+     * One line of output
+     */
+    record RunResult(
+            String message,
+            String group,
+            boolean succeeded,
+            String error,
+            List<VariantResult> bestVariants,
+            List<String> findings,
+            long millis
+    ) {
+    }
+
+    /**
+     * Outcome of a campaign
+     */
+    public record Summary(int runs, int failed, Path output) {
+
+        @Override
+        public String toString() {
+            return "%d runs, %d failed. Results in %s".formatted(runs, failed, output);
+        }
+    }
+
+    /**
+     * Run the whole matrix, blocking until every run has finished
+     *
+     * @param maxIterations override of the configured maximum iterations if greater than 0
+     * @throws IllegalArgumentException if either glob matches nothing
+     */
+    public Summary run(String messageGlob, String groupGlob, int maxIterations, Path output) throws IOException {
+        var messages = messageVariantsRepository.findNames(messageGlob);
+        var groups = participantRepository.findGroups(groupGlob);
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("No messages match " + messageGlob);
+        }
+        if (groups.isEmpty()) {
+            throw new IllegalArgumentException("No groups match " + groupGlob);
+        }
+        var options = new RunOptions("campaign-" + UUID.randomUUID(), CapacityScheduler.Lane.BULK, 1.0, maxIterations);
+        logger.info("Campaign of {} messages against {} groups: {} runs", messages.size(), groups.size(),
+                messages.size() * groups.size());
+
+        var permits = new Semaphore(MAX_CONCURRENT_RUNS);
+        var failed = new AtomicInteger();
+        try (var out = Files.newBufferedWriter(output);
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var message : messages) {
+                for (var group : groups) {
+                    executor.submit(() -> {
+                        permits.acquireUninterruptibly();
+                        try {
+                            var result = run(message, group, options);
+                            if (!write(out, result) || !result.succeeded()) {
+                                failed.incrementAndGet();
+                            }
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+        }
+        return new Summary(messages.size() * groups.size(), failed.get(), output);
+    }
+
+    private RunResult run(String message, String group, RunOptions options) {
+        long start = System.currentTimeMillis();
+        try {
+            var best = focusGroupRunner.run(message, group, options);
+            return new RunResult(message, group, true, null,
+                    best.bestVariants().stream()
+                            .map(score -> new VariantResult(
+                                    score.messageVariant().wording(),
+                                    score.normalizedScore(),
+                                    score.lowerBound(),
+                                    score.upperBound()))
+                            .toList(),
+                    best.findings(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.error("Campaign run of {} against {} failed", message, group, e);
+            return new RunResult(message, group, false, e.getMessage(), List.of(), List.of(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * @return whether the result was written
+     */
+    private static boolean write(Writer out, RunResult result) {
+        synchronized (out) {
+            try {
+                out.write(objectMapper.writeValueAsString(result));
+                out.write('\n');
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to write result of {} against {}", result.message(), result.group(), e);
+                return false;
+            }
+        }
+    }
+}
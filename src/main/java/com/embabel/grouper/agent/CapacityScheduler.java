@@ -0,0 +1,179 @@
+package com.embabel.grouper.agent;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shares LLM capacity across every focus group run in this JVM,
+ * so concurrent runs together don't overrun provider limits.
+ * Each model has a fixed number of concurrent calls.
+ * Waiting calls are served by lane, then by self-clocked weighted fair queuing
+ * across flows (a tenant, or a run if it has no tenant),
+ * so one large run can't starve others.
+ */
+@Component
+public class CapacityScheduler {
+
+    /**
+     * Priority lanes. Lower lanes are always served first.
+     */
+    public enum Lane {
+        /**
+         * Quick evaluations, such as single iteration runs
+         */
+        EXPRESS,
+        STANDARD,
+        /**
+         * Batch work that can wait
+         */
+        BULK
+    }
+
+    /**
+     * Forget flow state after this many flows, if they're idle
+     */
+    private static final int MAX_IDLE_FLOWS = 1000;
+
+    private final int capacityPerModel;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public CapacityScheduler(GrouperProperties properties) {
+        this(properties.modelConcurrency());
+    }
+
+    CapacityScheduler(int capacityPerModel) {
+        this.capacityPerModel = capacityPerModel;
+    }
+
+    /**
+     * Run the task when the model has capacity and it's this flow's turn
+     *
+     * @param model  model the task will call
+     * @param flow   flow to share fairly with others: for example, a tenant or run id
+     * @param lane   priority lane
+     * @param weight relative share of capacity for the flow
+     */
+    public <T> T call(String model, String flow, Lane lane, double weight, Supplier<T> task) {
+        var pool = pools.computeIfAbsent(model, m -> new Pool(capacityPerModel));
+        pool.acquire(flow, lane, weight);
+        try {
+            return task.get();
+        } finally {
+            pool.release();
+        }
+    }
+
+    /**
+     * Number of calls waiting for the model
+     */
+    int waiting(String model) {
+        var pool = pools.get(model);
+        return pool == null ? 0 : pool.waiting();
+    }
+
+    private static final class Waiter {
+        final Lane lane;
+        final double finishTag;
+        final long sequence;
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Lane lane, double finishTag, long sequence, Condition condition) {
+            this.lane = lane;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+
+    private static final class Pool {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+                Comparator.<Waiter, Lane>comparing(w -> w.lane)
+                        .thenComparingDouble(w -> w.finishTag)
+                        .thenComparingLong(w -> w.sequence));
+
+        private final Map<String, Double> lastFinishTags = new HashMap<>();
+
+        private int available;
+
+        private double virtualTime;
+
+        private long sequence;
+
+        Pool(int capacity) {
+            this.available = capacity;
+        }
+
+        void acquire(String flow, Lane lane, double weight) {
+            lock.lock();
+            try {
+                double start = Math.max(virtualTime, lastFinishTags.getOrDefault(flow, 0.0));
+                double finishTag = start + 1.0 / Math.max(weight, Double.MIN_NORMAL);
+                lastFinishTags.put(flow, finishTag);
+                var waiter = new Waiter(lane, finishTag, sequence++, lock.newCondition());
+                queue.add(waiter);
+                dispatch();
+                while (!waiter.granted) {
+                    try {
+                        waiter.condition.await();
+                    } catch (InterruptedException e) {
+                        if (waiter.granted) {
+                            available++;
+                            dispatch();
+                        } else {
+                            queue.remove(waiter);
+                        }
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted waiting for LLM capacity", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int waiting() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                available++;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void dispatch() {
+            while (available > 0 && !queue.isEmpty()) {
+                var waiter = queue.poll();
+                waiter.granted = true;
+                available--;
+                virtualTime = waiter.finishTag;
+                waiter.condition.signal();
+            }
+            if (lastFinishTags.size() > MAX_IDLE_FLOWS) {
+                lastFinishTags.values().removeIf(finishTag -> finishTag <= virtualTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.PresentationQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coordinator side of distributed mode: queues presentations for workers,
+ * which may be in other JVMs, and collects their reactions.
+ */
+@Component
+class DistributedPresenter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedPresenter.class);
+
+    private final PresentationQueue presentationQueue;
+
+    private final GrouperProperties properties;
+
+    private final GrouperProperties.Distribution distribution;
+
+    DistributedPresenter(PresentationQueue presentationQueue, GrouperProperties properties) {
+        this.presentationQueue = presentationQueue;
+        this.properties = properties;
+        this.distribution = properties.distribution();
+    }
+
+    /**
+     * Queue all presentations and block until workers have performed them
+     *
+     * @param batch      unique id for this batch of presentations
+     * @param handle     run the batch belongs to, whose flow, lane and weight workers schedule by
+     * @param onReaction called for each reaction as it arrives
+     * @throws IllegalStateException if a presentation fails too often, or the batch times out
+     */
+    void present(
+            String batch,
+            RunHandle handle,
+            List<Model.ParticipantMessagePresentation> presentations,
+            Consumer<Model.SpecificReaction> onReaction) {
+        var outstanding = new HashMap<String, Model.ParticipantMessagePresentation>();
+        var attempts = new HashMap<String, Integer>();
+        Function<Model.ParticipantMessagePresentation, PresentationQueue.Task> task = presentation -> PresentationQueue.Task.of(
+                UUID.randomUUID().toString(),
+                batch,
+                handle.flow(),
+                handle.options().lane(properties).name(),
+                handle.options().weight(),
+                presentation);
+        for (var presentation : presentations) {
+            submit(task.apply(presentation), presentation, outstanding, attempts, 1);
+        }
+        logger.info("Queued {} presentations in batch {}", presentations.size(), batch);
+
+        var deadline = System.nanoTime() + distribution.batchTimeout().toNanos();
+        while (!outstanding.isEmpty()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Batch %s timed out after %s with %d of %d presentations outstanding. Are workers running?".formatted(
+                        batch, distribution.batchTimeout(), outstanding.size(), presentations.size()));
+            }
+            var results = presentationQueue.takeResults(batch);
+            for (var result : results) {
+                var presentation = outstanding.remove(result.taskId());
+                if (presentation == null) {
+                    // Duplicate from a worker we thought had died
+                    continue;
+                }
+                if (result.error() != null) {
+                    var attempt = attempts.get(result.taskId());
+                    if (attempt >= distribution.maxAttempts()) {
+                        throw new IllegalStateException("Presentation of '%s' to %s failed after %d attempts: %s".formatted(
+                                presentation.messageVariant().wording(), presentation.participant().id(), attempt, result.error()));
+                    }
+                    logger.warn("Presentation to {} failed, will retry: {}", presentation.participant().id(), result.error());
+                    submit(task.apply(presentation), presentation, outstanding, attempts, attempt + 1);
+                    continue;
+                }
+                onReaction.accept(new Model.SpecificReaction(
+                        presentation,
+                        result.reaction(),
+                        Instant.ofEpochMilli(result.timestamp())));
+            }
+            if (results.isEmpty()) {
+                presentationQueue.requeueStale(distribution.claimTimeout());
+                try {
+                    Thread.sleep(distribution.pollInterval());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for workers on batch " + batch, e);
+                }
+            }
+        }
+    }
+
+    private void submit(
+            PresentationQueue.Task task,
+            Model.ParticipantMessagePresentation presentation,
+            Map<String, Model.ParticipantMessagePresentation> outstanding,
+            Map<String, Integer> attempts,
+            int attempt) {
+        outstanding.put(task.id(), presentation);
+        attempts.put(task.id(), attempt);
+        presentationQueue.submit(task);
+    }
+}
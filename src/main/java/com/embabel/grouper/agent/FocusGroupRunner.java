@@ -0,0 +1,220 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.agent.api.common.autonomy.AgentInvocation;
+import com.embabel.agent.core.AgentPlatform;
+import com.embabel.agent.core.Budget;
+import com.embabel.agent.core.ProcessOptions;
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.MessageVariantsRepository;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ParticipantRepository;
+import com.embabel.grouper.domain.Snapshot;
+import com.embabel.grouper.domain.support.JsonlResultExporter;
+import com.embabel.grouper.domain.support.SnapshotStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs focus groups, either blocking or in the background.
+ * Shared by all entry points.
+ */
+@Service
+public class FocusGroupRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FocusGroupRunner.class);
+
+    private final AgentPlatform agentPlatform;
+    private final ParticipantRepository participantRepository;
+    private final MessageVariantsRepository messageVariantsRepository;
+    private final GrouperProperties config;
+    private final RunTracer runTracer;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Exports every run's results, if configured
+     */
+    @Nullable
+    private final JsonlResultExporter exporter;
+
+    /**
+     * Snapshots every run after each iteration, if configured
+     */
+    @Nullable
+    private final SnapshotStore snapshotStore;
+
+    /**
+     * Most plans we keep. The least recently used are forgotten first.
+     */
+    private static final int MAX_PLANS = 64;
+
+    /**
+     * Plans by message and group, so repeated runs start warm
+     */
+    private final Map<String, RunPlan> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RunPlan> eldest) {
+            return size() > MAX_PLANS;
+        }
+    };
+
+    public FocusGroupRunner(
+            AgentPlatform agentPlatform,
+            ParticipantRepository participantRepository,
+            MessageVariantsRepository messageVariantsRepository,
+            GrouperProperties config,
+            RunTracer runTracer) {
+        this.agentPlatform = agentPlatform;
+        this.participantRepository = participantRepository;
+        this.messageVariantsRepository = messageVariantsRepository;
+        this.config = config;
+        this.runTracer = runTracer;
+        this.exporter = config.exportFile() == null || config.exportFile().isBlank() ?
+                null :
+                new JsonlResultExporter(Path.of(config.exportFile()));
+        this.snapshotStore = config.snapshotDirectory() == null || config.snapshotDirectory().isBlank() ?
+                null :
+                new SnapshotStore(Path.of(config.snapshotDirectory()));
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        executor.shutdownNow();
+        if (exporter != null) {
+            exporter.close();
+        }
+        if (snapshotStore != null) {
+            snapshotStore.close();
+        }
+    }
+
+    /**
+     * New run, exported and snapshotted if configured
+     */
+    private RunHandle handle(String message, String group, RunOptions options, FocusGroupListener listener) {
+        var id = UUID.randomUUID().toString();
+        if (exporter != null) {
+            listener = listener.andThen(exporter.forRun(id, message, group));
+        }
+        if (snapshotStore != null) {
+            listener = listener.andThen(snapshotStore.forRun(id, message, group));
+        }
+        return new RunHandle(id, message, group, options, listener);
+    }
+
+    /**
+     * Run a focus group, blocking until it completes
+     *
+     * @throws IllegalArgumentException if the message or group can't be resolved
+     */
+    public Model.BestScoringVariants run(String message, String group, RunOptions options) {
+        return run(handle(message, group, options, FocusGroupListener.NO_OP));
+    }
+
+    /**
+     * Start a focus group in the background, returning immediately.
+     * The listener will be notified of progress, completion or failure.
+     *
+     * @throws IllegalArgumentException if the message or group can't be resolved
+     */
+    public RunHandle start(String message, String group, RunOptions options, FocusGroupListener listener) {
+        var handle = handle(message, group, options, listener);
+        var plan = resolve(handle);
+        executor.submit(() -> {
+            try {
+                run(handle, plan);
+            } catch (RuntimeException e) {
+                logger.error("Focus group run {} failed", handle.id(), e);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Fork a new run from a snapshot of an earlier one, blocking until it completes.
+     * The run starts from the snapshot's best variants, findings and reactions,
+     * rather than the message's original variants.
+     *
+     * @param group group to run with, or null for the snapshot's group.
+     *              Reactions of participants not in the group aren't reused
+     * @throws IllegalArgumentException if the message or group can't be resolved
+     */
+    public Model.BestScoringVariants fork(Snapshot snapshot, @Nullable String group, RunOptions options) {
+        var handle = handle(snapshot.message(), group == null ? snapshot.group() : group, options, FocusGroupListener.NO_OP);
+        logger.info("Forking run {} of {} from iteration {} of run {} with group {}",
+                handle.id(), snapshot.message(), snapshot.iteration(), snapshot.run(), handle.group());
+        return run(handle, resolve(handle), snapshot);
+    }
+
+    Model.BestScoringVariants run(RunHandle handle) {
+        return run(handle, resolve(handle));
+    }
+
+    /**
+     * Participants and messages are loaded for every run, so edits take effect,
+     * but only rendered again if they've changed
+     */
+    private RunPlan resolve(RunHandle handle) {
+        var participants = participantRepository.findByGroup(handle.group());
+        var messageVariants = messageVariantsRepository.findByName(handle.message());
+
+        if (participants.isEmpty()) {
+            throw new IllegalArgumentException("Unable to resolve participants by group " + handle.group());
+        }
+        if (messageVariants == null) {
+            throw new IllegalArgumentException("Unable to find messaging for message " + handle.message());
+        }
+        var key = handle.message() + "\n" + handle.group();
+        synchronized (plans) {
+            var plan = plans.get(key);
+            if (plan == null || !plan.isFor(participants, messageVariants)) {
+                plan = RunPlan.of(participants, messageVariants);
+                plans.put(key, plan);
+            }
+            return plan;
+        }
+    }
+
+    private Model.BestScoringVariants run(RunHandle handle, RunPlan plan) {
+        return run(handle, plan, null);
+    }
+
+    private Model.BestScoringVariants run(RunHandle handle, RunPlan plan, @Nullable Snapshot snapshot) {
+        var message = plan.messageVariants().message();
+        var positioning = new Model.Positioning(List.of(snapshot == null ?
+                plan.messageVariants() :
+                new Model.MessageVariants(message, snapshot.bestWordings().toArray(String[]::new))));
+
+        runTracer.startRun(handle);
+        try {
+            var invocation = AgentInvocation.builder(agentPlatform)
+                    .options(new ProcessOptions.Builder()
+                            .verbosity(v -> v.showPrompts(config.showPrompts()))
+                            .budget(new Budget(config.maxCost(), Integer.MAX_VALUE, Integer.MAX_VALUE))
+                            .build())
+                    .build(Model.BestScoringVariants.class);
+            var bestScoringVariants = snapshot == null ?
+                    invocation.invoke(plan.focusGroup(), plan.participants(), positioning, handle, plan) :
+                    invocation.invoke(plan.focusGroup(), plan.participants(), positioning, handle, plan, snapshot);
+            runTracer.endRun(handle, null);
+            handle.listener().onComplete(bestScoringVariants);
+            return bestScoringVariants;
+        } catch (RuntimeException e) {
+            runTracer.endRun(handle, e);
+            handle.listener().onError(e);
+            throw e;
+        }
+    }
+}
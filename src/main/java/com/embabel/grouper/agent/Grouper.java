@@ -4,30 +4,48 @@ import com.embabel.agent.api.annotation.AchievesGoal;
 import com.embabel.agent.api.annotation.Action;
 import com.embabel.agent.api.annotation.Agent;
 import com.embabel.agent.api.annotation.Condition;
-import com.embabel.agent.api.common.Ai;
 import com.embabel.agent.api.common.OperationContext;
 import com.embabel.agent.event.ProgressUpdateEvent;
-import com.embabel.common.util.StringTrimmingUtilsKt;
 import com.embabel.grouper.domain.FocusGroupRun;
 import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ReactionHistory;
+import com.embabel.grouper.domain.Snapshot;
+import com.embabel.grouper.domain.Tokens;
+import com.embabel.grouper.domain.WordingIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Agent to simulate a focus group
  *
- * @param properties      properties
- * @param fitnessFunction fitness function determining when we are satisfied
+ * @param properties           properties
+ * @param fitnessFunction      fitness function determining when we are satisfied
+ * @param capacityScheduler    shares LLM capacity with other runs
+ * @param distributedPresenter presents via workers when we're a coordinator
+ * @param reactivePresenter    presents through a Reactor pipeline when reactive
+ * @param runTracer            traces runs as spans
+ * @param llmCassette          records or replays LLM responses
+ * @param reactionHistory      past reactions to warm start from
  */
 @Agent(description = "Simulate a focus group")
 record Grouper(
         GrouperProperties properties,
-        Predicate<FocusGroupRun> fitnessFunction
+        Predicate<FocusGroupRun> fitnessFunction,
+        CapacityScheduler capacityScheduler,
+        DistributedPresenter distributedPresenter,
+        ReactivePresenter reactivePresenter,
+        RunTracer runTracer,
+        LlmCassette llmCassette,
+        ReactionHistory reactionHistory
 ) {
 
     private static final Logger logger = LoggerFactory.getLogger(Grouper.class);
@@ -49,8 +67,20 @@ record Grouper(
     }
 
     @Action
-    Model.BestScoringVariants initialize() {
-        return new Model.BestScoringVariants(properties);
+    Model.BestScoringVariants initialize(OperationContext context) {
+        var runHandle = runHandle(context);
+        if (runHandle.message() == null || runHandle.group() == null) {
+            return new Model.BestScoringVariants(properties);
+        }
+        var bestScoringVariants = new Model.BestScoringVariants(properties,
+                reactionHistory.priors(runHandle.message(), runHandle.group()));
+        // Forked runs resume from the snapshot they were forked from
+        var snapshot = context.last(Snapshot.class);
+        if (snapshot != null) {
+            var plan = runPlan(context);
+            snapshot.restoreInto(bestScoringVariants, plan.messageVariants().message(), plan.participants());
+        }
+        return bestScoringVariants;
     }
 
     @Action(pre = {RUN_FOCUS_GROUP_CONDITION}, post = {DONE_CONDITION}, canRerun = true)
@@ -60,62 +90,138 @@ record Grouper(
             Model.BestScoringVariants bestScoringVariants,
             OperationContext context
     ) {
-        var focusGroupRun = new FocusGroupRun(focusGroup, positioning);
-        logger.info("Will try {} combinations", focusGroupRun.combinations.size());
+        var ledger = bestScoringVariants.ledger();
+        var reliability = ledger.reliability();
+        ToDoubleFunction<String> modelWeight = model -> reliability.weight(model, properties.modelReliability());
+        var runHandle = runHandle(context);
+        // Seeded through the cassette so replayed runs sample the same participants
+        var random = new Random(llmCassette.seed(String.join("\n", "sample", runHandle.message(), runHandle.group())));
+        var sample = focusGroup
+                .stratifiedSample(properties.sampleFraction(), properties.strata(), random)
+                .restrictedTo(participant -> modelWeight.applyAsDouble(Model.Strata.MODEL.of(participant)) > 0);
+        var focusGroupRun = new FocusGroupRun(sample, positioning, modelWeight);
+        if (ledger.size() > 0) {
+            logger.info("Model reliability: {}", reliability.stats());
+        }
+        var pending = focusGroupRun.carryForward(ledger);
+        logger.info("Sampled {} of {} participants by {}: will try {} new of {} combinations",
+                sample.participants().size(), focusGroup.participants().size(), properties.strata(),
+                pending.size(), focusGroupRun.combinations.size());
 
+        var plan = runPlan(context);
+        var listener = runHandle.listener();
+        var iteration = context.count(FocusGroupRun.class) + 1;
         var specificReactions = new AtomicInteger(0);
-        var results = context.parallelMap(
-                focusGroupRun.combinations,
-                properties.maxConcurrency(),
-                participantMessagePresentation -> {
-                    var sp = presentMessageVariantToParticipants(
-                            participantMessagePresentation,
-                            context);
-                    var count = specificReactions.incrementAndGet();
-                    context.getProcessContext().onProcessEvent(
-                            new ProgressUpdateEvent(context.getAgentProcess(),
-                                    " this focus group", count, focusGroupRun.combinations.size())
-                    );
-                    context.getProcessContext().onProcessEvent(
-                            new ProgressUpdateEvent(context.getAgentProcess(),
-                                    "message evolution", context.count(FocusGroupRun.class), properties.maxIterations())
-                    );
-                    return sp;
-                }
-        );
-        results.forEach(focusGroupRun::record);
-        bestScoringVariants.updateFrom(focusGroupRun, properties);
-        return focusGroupRun;
+        Consumer<Model.SpecificReaction> onReaction = sp -> {
+            // Statistics are updated as each reaction arrives
+            focusGroupRun.record(sp);
+            ledger.record(sp);
+            // Further samples of a presentation don't count towards progress
+            var count = focusGroupRun.samplesOf(sp.participantMessagePresentation()).size() == 1 ?
+                    specificReactions.incrementAndGet() :
+                    specificReactions.get();
+            listener.onReaction(sp);
+            listener.onProgress(iteration, count, pending.size());
+            context.getProcessContext().onProcessEvent(
+                    new ProgressUpdateEvent(context.getAgentProcess(),
+                            " this focus group", count, pending.size())
+            );
+            context.getProcessContext().onProcessEvent(
+                    new ProgressUpdateEvent(context.getAgentProcess(),
+                            "message evolution", context.count(FocusGroupRun.class), runHandle.options().maxIterations(properties))
+            );
+        };
+        runTracer.startIteration(runHandle, iteration);
+        var action = runTracer.startAction(runHandle, "runFocusGroup");
+        action.setAttribute(RunTracer.PRESENTATIONS, (long) pending.size());
+        try {
+            // Resample while the participant's reactions disagree, or the variant is borderline
+            Predicate<Model.ParticipantMessagePresentation> needsAnother = presentation -> properties.resampling().needsAnother(
+                    focusGroupRun.samplesOf(presentation),
+                    properties.decisionScore(focusGroupRun.getAverageScoreForMessageVariant(presentation.messageVariant())),
+                    properties.minMessageScore());
+            Function<Model.ParticipantMessagePresentation, Model.SpecificReaction> present = presentation -> {
+                long queued = System.nanoTime();
+                return runTracer.tracePresentation(
+                        action,
+                        presentation,
+                        plan,
+                        focusGroupRun.samplesOf(presentation).size() + 1,
+                        acquired -> capacityScheduler.call(
+                                Model.Strata.MODEL.of(presentation.participant()),
+                                runHandle.flow(),
+                                runHandle.options().lane(properties),
+                                runHandle.options().weight(),
+                                () -> {
+                                    acquired.run();
+                                    var rendered = plan.render(presentation.messageVariant());
+                                    long started = System.nanoTime();
+                                    var reaction = presentMessageVariantToParticipants(presentation, plan, rendered, context);
+                                    bestScoringVariants.profile().record(presentation, started - queued,
+                                            System.nanoTime() - started, plan.promptTokens(presentation.participant(), rendered));
+                                    return reaction;
+                                }));
+            };
+            if (properties.distribution().mode() == GrouperProperties.Distribution.Mode.COORDINATOR) {
+                // Workers present, so there's no resampling, presentation tracing, profiling or cassette
+                distributedPresenter.present(
+                        runHandle.id() + "-" + iteration,
+                        runHandle,
+                        pending,
+                        onReaction);
+            } else if (properties.reactive()) {
+                reactivePresenter.present(pending, properties.maxConcurrency(), present, onReaction, needsAnother);
+            } else {
+                context.parallelMap(
+                        pending,
+                        properties.maxConcurrency(),
+                        presentation -> {
+                            while (needsAnother.test(presentation)) {
+                                onReaction.accept(present.apply(presentation));
+                            }
+                            return focusGroupRun.samplesOf(presentation);
+                        }
+                );
+            }
+            listener.onScores(iteration, focusGroupRun.getMessageVariantScores());
+            bestScoringVariants.updateFrom(focusGroupRun, properties);
+            listener.onIteration(iteration, bestScoringVariants);
+            return focusGroupRun;
+        } catch (RuntimeException e) {
+            RunTracer.fail(action, e);
+            throw e;
+        } finally {
+            action.end();
+        }
+    }
+
+    /**
+     * Whoever started this run may have options for it,
+     * and may want to know how it's going
+     */
+    private static RunHandle runHandle(OperationContext context) {
+        var runHandle = context.last(RunHandle.class);
+        return runHandle == null ? RunHandle.anonymous() : runHandle;
+    }
+
+    /**
+     * Prompts rendered when the run was started, if it was started with a plan
+     */
+    private static RunPlan runPlan(OperationContext context) {
+        var plan = context.last(RunPlan.class);
+        return plan == null ? RunPlan.empty() : plan;
     }
 
     Model.SpecificReaction presentMessageVariantToParticipants(
             Model.ParticipantMessagePresentation messagePresentation,
+            RunPlan plan,
+            RunPlan.RenderedVariant rendered,
             OperationContext context) {
-        var reaction = context.ai()
-                .withLlm(messagePresentation.participant().llm())
-                .withPromptContributor(messagePresentation.participant())
-                .withId(StringTrimmingUtilsKt.trim(
-                        messagePresentation.messageVariant().wording(), 80, 5, "..."
-                ) + "_" + messagePresentation.participant().name())
-                .creating(Model.Reaction.class)
-                .fromPrompt("""
-                        You are a member of a focus group.
-                        Your replies are confidential and you don't need to worry about
-                        anyone knowing what you said, so you can share your feelings
-                        honestly without fear of judgment or consequences.
-                        Be honest.
-                        
-                        React to the following message given your persona:
-                        
-                        <message>%s</message>
-                        
-                        Assess in terms of whether it would produce the following objective in your mind:
-                        <objective>%s</objective>
-                        Also consider whether it is effective as <deliverable>%s</deliverable>
-                        """.formatted(
-                        messagePresentation.messageVariant().wording(),
-                        messagePresentation.messageVariant().message().objective(),
-                        messagePresentation.messageVariant().message().deliverable()));
+        var participant = messagePresentation.participant();
+        var reaction = llmCassette.call(
+                String.join("\n", "reaction", participant.id(), participant.contribution(), rendered.prompt()),
+                Model.Reaction.class,
+                () -> Presenter.react(context.ai(), messagePresentation, plan, rendered));
         logger.info("Reaction of {} was {}", messagePresentation.participant(), reaction);
         return new Model.SpecificReaction(
                 messagePresentation,
@@ -126,60 +232,94 @@ record Grouper(
 
     @Condition(name = DONE_CONDITION)
     boolean done(FocusGroupRun focusGroupRun, OperationContext context) {
-        return context.count(FocusGroupRun.class) >= properties.maxIterations() || fitnessFunction.test(focusGroupRun);
+        return context.count(FocusGroupRun.class) >= runHandle(context).options().maxIterations(properties) ||
+                fitnessFunction.test(focusGroupRun);
     }
 
     @Action(cost = 1.0, post = {DONE_CONDITION}, canRerun = true)
     Model.Positioning evolvePositioning(
             FocusGroupRun focusGroupRun,
             Model.BestScoringVariants bestScoringVariants,
-            Ai ai
+            OperationContext context
     ) {
         logger.debug("Evolving positioning based on FocusGroupRun {}", focusGroupRun);
         // TODO Should handle > 1 message
         var messageVariants = focusGroupRun.positioning.messageVariants().getFirst();
-        var creativeControl = properties.nextCreative()
-                .promptRunner(ai)
-                .withPromptContributor(messageVariants.message())
-                .creating(CreativeControl.class)
-                .fromPrompt("""
-                        Given the objectives, consider
-                        the following feedback and previous learnings:
-                        %s
-                        
-                        1. Summarize the feedback in no more than %d words.
-                        
-                        2. Create new message wordings we could try.
-                        
-                        Be creative. Try to break through!
-                        Feel free to rephrase promising previous attempts for greater impact,
-                        or come up with completely new ideas!
-                        
-                        Never use more than %d variants
-                        
-                        Best scoring variants so far:
-                        %s
-                        """.formatted(
-                        focusGroupRun.infoString(true, 1),
-                        properties.findingsWordCount(),
-                        properties.maxVariants(),
-                        bestScoringVariants)
-                );
-        logger.info("Best scoring variants so far:\n{}", bestScoringVariants);
-        logger.info("Creative input: {}", creativeControl);
-        bestScoringVariants.addFinding(creativeControl.summary);
-        var newMessageVariants = new Model.MessageVariants(
-                messageVariants.message(),
-                creativeControl.wordings().toArray(new String[0])
-        );
+        var runHandle = runHandle(context);
+        var action = runTracer.startAction(runHandle, "evolvePositioning");
+        try {
+            var creative = properties.nextCreative(
+                    new Random(llmCassette.seed(String.join("\n", "creative", runHandle.message(), runHandle.group()))));
+            var prompt = """
+                    Given the objectives, consider
+                    the following feedback and previous learnings:
+                    %s
+                    
+                    1. Summarize the feedback in no more than %d words.
+                    
+                    2. Create new message wordings we could try.
+                    
+                    Be creative. Try to break through!
+                    Feel free to rephrase promising previous attempts for greater impact,
+                    or come up with completely new ideas!
+                    
+                    Never use more than %d variants
+                    """.formatted(
+                    properties.feedbackCondenser().condense(focusGroupRun, bestScoringVariants),
+                    properties.findingsWordCount(),
+                    properties.maxVariants());
+            var model = String.valueOf(creative.getLlm().getModel());
+            var persona = String.valueOf(creative.getPersona().contribution());
+            var creativeControl = runTracer.traceCreative(action, model, Tokens.estimate(prompt), () -> capacityScheduler.call(
+                    model,
+                    runHandle.flow(),
+                    runHandle.options().lane(properties),
+                    runHandle.options().weight(),
+                    () -> llmCassette.call(
+                            String.join("\n", "creative", model, persona, messageVariants.message().contribution(), prompt),
+                            CreativeControl.class,
+                            () -> creative
+                                    .promptRunner(context.ai())
+                                    .withPromptContributor(messageVariants.message())
+                                    .creating(CreativeControl.class)
+                                    .fromPrompt(prompt))));
+            logger.info("Best scoring variants so far:\n{}", bestScoringVariants);
+            logger.info("Creative input: {}", creativeControl);
+            bestScoringVariants.addFinding(creativeControl.summary);
+            // If configured, near duplicates of wordings already tried reuse their reactions rather than being presented again
+            var wordings = creativeControl.wordings().stream()
+                    .map(wording -> {
+                        if (properties.mergeSimilarity() > 0) {
+                            var canonical = bestScoringVariants.canonicalWording(wording, properties.mergeSimilarity());
+                            if (!canonical.equals(wording)) {
+                                logger.info("Treating '{}' as '{}', which was already tried", wording, canonical);
+                            }
+                            return canonical;
+                        }
+                        bestScoringVariants.similarWordings(wording, 1).stream()
+                                .filter(match -> match.similarity() >= WordingIndex.NEAR_DUPLICATE)
+                                .forEach(match -> logger.info("'{}' is similar to '{}', which was already tried ({})",
+                                        wording, match.wording(), "%.2f".formatted(match.similarity())));
+                        return wording;
+                    })
+                    .distinct()
+                    .toArray(String[]::new);
+            var newMessageVariants = new Model.MessageVariants(messageVariants.message(), wordings);
 
-        return new Model.Positioning(List.of(newMessageVariants));
+            return new Model.Positioning(List.of(newMessageVariants));
+        } catch (RuntimeException e) {
+            RunTracer.fail(action, e);
+            throw e;
+        } finally {
+            action.end();
+        }
     }
 
     @Action(pre = {DONE_CONDITION})
     @AchievesGoal(description = "Focus group has considered positioning")
     Model.BestScoringVariants results(
             Model.BestScoringVariants bestScoringVariants) {
+        logger.info("Profile:\n{}", bestScoringVariants.profile());
         return bestScoringVariants;
     }
 
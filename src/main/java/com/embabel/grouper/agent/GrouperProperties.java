@@ -2,12 +2,18 @@ package com.embabel.grouper.agent;
 
 import com.embabel.agent.prompt.persona.Actor;
 import com.embabel.agent.prompt.persona.RoleGoalBackstory;
+import com.embabel.grouper.domain.FeedbackCondenser;
 import com.embabel.grouper.domain.FocusGroupRun;
 import com.embabel.grouper.domain.Model;
-import io.vavr.collection.Vector;
+import com.embabel.grouper.domain.ModelReliability;
+import com.embabel.grouper.domain.Objective;
+import com.embabel.grouper.domain.ResamplingPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.function.Predicate;
 
 @ConfigurationProperties(prefix = "grouper")
@@ -19,24 +25,366 @@ public record GrouperProperties(
         int findingsWordCount,
         boolean showPrompts,
         double maxCost,
-        List<Actor<RoleGoalBackstory>> creatives
+        List<Actor<RoleGoalBackstory>> creatives,
+        double sampleFraction,
+        Model.Strata strata,
+        boolean rankByLowerBound,
+        int feedbackTokenBudget,
+        int maxFindings,
+        int modelConcurrency,
+        Distribution distribution,
+        Map<Objective, Double> decisionWeights,
+        List<Objective> paretoObjectives,
+        ModelReliability.Policy modelReliability,
+        ResamplingPolicy resampling,
+        String exportFile,
+        String historyFile,
+        boolean reactive,
+        String traceFile,
+        Cassette cassette,
+        String snapshotDirectory,
+        double mergeSimilarity
 ) implements Predicate<FocusGroupRun> {
 
+    /**
+     * How presentations are spread across processes
+     *
+     * @param mode           local: present in this JVM.
+     *                       coordinator: queue presentations for workers.
+     *                       worker: perform presentations queued by a coordinator
+     * @param queueDirectory directory of the file-backed queue shared by coordinator and workers
+     * @param workers        concurrent presentations performed by a worker JVM
+     * @param pollInterval   how often to check the queue when idle
+     * @param claimTimeout   how long a worker may hold a task before it's given to another
+     * @param maxAttempts    attempts at each presentation before the run fails
+     * @param batchTimeout   how long a coordinator waits for a batch of presentations before the run fails,
+     *                       for example because no workers are running
+     */
+    public record Distribution(
+            Mode mode,
+            String queueDirectory,
+            int workers,
+            Duration pollInterval,
+            Duration claimTimeout,
+            int maxAttempts,
+            Duration batchTimeout
+    ) {
+
+        public enum Mode {
+            LOCAL,
+            COORDINATOR,
+            WORKER
+        }
+
+        public Distribution {
+            if (mode == null) {
+                mode = Mode.LOCAL;
+            }
+            if (queueDirectory == null) {
+                queueDirectory = "queue";
+            }
+            if (workers <= 0) {
+                workers = 8;
+            }
+            if (pollInterval == null) {
+                pollInterval = Duration.ofMillis(200);
+            }
+            if (claimTimeout == null) {
+                claimTimeout = Duration.ofMinutes(2);
+            }
+            if (maxAttempts <= 0) {
+                maxAttempts = 3;
+            }
+            if (batchTimeout == null) {
+                batchTimeout = Duration.ofHours(1);
+            }
+        }
+    }
+
+    /**
+     * Recording of LLM responses, for replaying runs without calling models
+     *
+     * @param mode  off: call models.
+     *              record: call models and append every response to the file.
+     *              replay: serve responses from the file, failing if a request wasn't recorded
+     * @param file  cassette file
+     * @param speed how fast to replay relative to recorded latency. 0 for no delay
+     */
+    public record Cassette(
+            Mode mode,
+            String file,
+            double speed
+    ) {
+
+        public enum Mode {
+            OFF,
+            RECORD,
+            REPLAY
+        }
+
+        public Cassette {
+            if (mode == null) {
+                mode = Mode.OFF;
+            }
+            if (file == null) {
+                file = "cassette.jsonl";
+            }
+            if (speed < 0) {
+                speed = 0;
+            }
+        }
+    }
+
+    /**
+     * By default every participant sees every variant in every iteration.
+     * Set sampleFraction below 1.0 to present to a stratified sample instead.
+     */
+    public GrouperProperties {
+        if (sampleFraction <= 0.0) {
+            sampleFraction = 1.0;
+        }
+        if (strata == null) {
+            strata = Model.Strata.PERSONA;
+        }
+        if (maxFindings <= 0) {
+            maxFindings = 5;
+        }
+        if (modelConcurrency <= 0) {
+            modelConcurrency = maxConcurrency * 2;
+        }
+        if (distribution == null) {
+            distribution = new Distribution(null, null, 0, null, null, 0, null);
+        }
+        if (cassette == null) {
+            cassette = new Cassette(null, null, 0);
+        }
+        if (decisionWeights == null || decisionWeights.isEmpty()) {
+            decisionWeights = Map.of(
+                    rankByLowerBound ? Objective.LOWER_BOUND : Objective.WEIGHTED_MEAN, 5.0,
+                    Objective.AVERAGE, 1.1);
+        }
+        if (paretoObjectives == null || paretoObjectives.isEmpty()) {
+            paretoObjectives = List.of(
+                    Objective.WEIGHTED_MEAN, Objective.WORST_SEGMENT, Objective.NO_BACKFIRE, Objective.MODEL_AGREEMENT);
+        }
+        if (modelReliability == null) {
+            modelReliability = ModelReliability.Policy.DEFAULT;
+        }
+        if (resampling == null) {
+            resampling = ResamplingPolicy.DEFAULT;
+        }
+    }
+
     @Override
     public boolean test(FocusGroupRun focusGroupRun) {
-        return focusGroupRun.isComplete() && decisionScore(focusGroupRun.getBestPerformingMessageVariant()) > minMessageScore;
+        return focusGroupRun.isComplete() && focusGroupRun.getMessageVariantScores().stream()
+                .anyMatch(score -> decisionScore(score) > minMessageScore);
     }
 
     /**
-     * We mix the two so messages absolutely hated by a small proportion
-     * get penalized
+     * Weighted blend of objectives.
+     * By default we mix the weighted mean and the plain average so messages
+     * absolutely hated by a small proportion get penalized.
+     * If rankByLowerBound is set, the default uses the lower bound of the weighted mean instead,
+     * so a variant only wins if it's convincingly good, not luckily good.
      */
     public double decisionScore(Model.MessageVariantScore messageVariantScore) {
-        return (messageVariantScore.normalizedScore() * 5.0 + messageVariantScore.averageScore() * 1.1) / 6.1;
+        double total = 0.0;
+        double weights = 0.0;
+        for (var weighted : decisionWeights.entrySet()) {
+            total += weighted.getValue() * weighted.getKey().applyAsDouble(messageVariantScore);
+            weights += weighted.getValue();
+        }
+        return weights > 0 ? total / weights : 0.0;
     }
 
-    public Actor<RoleGoalBackstory> nextCreative() {
-        return Vector.ofAll(creatives).shuffle().head();
+    public FeedbackCondenser feedbackCondenser() {
+        return new FeedbackCondenser(feedbackTokenBudget, maxFindings);
     }
 
+    /**
+     * Creative to consult next, chosen at random
+     */
+    public Actor<RoleGoalBackstory> nextCreative(Random random) {
+        return creatives.get(random.nextInt(creatives.size()));
+    }
+
+    /**
+     * Builder starting from the defaults in application.yml, without creatives.
+     * For configuring in code, such as in tests, rather than binding configuration.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private int maxConcurrency = 8;
+        private int maxVariants = 10;
+        private int maxIterations = 3;
+        private double minMessageScore = 0.9;
+        private int findingsWordCount = 60;
+        private boolean showPrompts;
+        private double maxCost = 5.0;
+        private List<Actor<RoleGoalBackstory>> creatives = List.of();
+        private double sampleFraction = 1.0;
+        private Model.Strata strata;
+        private boolean rankByLowerBound;
+        private int feedbackTokenBudget = 4000;
+        private int maxFindings;
+        private int modelConcurrency = 16;
+        private Distribution distribution;
+        private Map<Objective, Double> decisionWeights;
+        private List<Objective> paretoObjectives;
+        private ModelReliability.Policy modelReliability;
+        private ResamplingPolicy resampling;
+        private String exportFile;
+        private String historyFile;
+        private boolean reactive;
+        private String traceFile;
+        private Cassette cassette;
+        private String snapshotDirectory;
+        private double mergeSimilarity;
+
+        private Builder() {
+        }
+
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder maxVariants(int maxVariants) {
+            this.maxVariants = maxVariants;
+            return this;
+        }
+
+        public Builder maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        public Builder minMessageScore(double minMessageScore) {
+            this.minMessageScore = minMessageScore;
+            return this;
+        }
+
+        public Builder findingsWordCount(int findingsWordCount) {
+            this.findingsWordCount = findingsWordCount;
+            return this;
+        }
+
+        public Builder showPrompts(boolean showPrompts) {
+            this.showPrompts = showPrompts;
+            return this;
+        }
+
+        public Builder maxCost(double maxCost) {
+            this.maxCost = maxCost;
+            return this;
+        }
+
+        public Builder creatives(List<Actor<RoleGoalBackstory>> creatives) {
+            this.creatives = creatives;
+            return this;
+        }
+
+        public Builder sampleFraction(double sampleFraction) {
+            this.sampleFraction = sampleFraction;
+            return this;
+        }
+
+        public Builder strata(Model.Strata strata) {
+            this.strata = strata;
+            return this;
+        }
+
+        public Builder rankByLowerBound(boolean rankByLowerBound) {
+            this.rankByLowerBound = rankByLowerBound;
+            return this;
+        }
+
+        public Builder feedbackTokenBudget(int feedbackTokenBudget) {
+            this.feedbackTokenBudget = feedbackTokenBudget;
+            return this;
+        }
+
+        public Builder maxFindings(int maxFindings) {
+            this.maxFindings = maxFindings;
+            return this;
+        }
+
+        public Builder modelConcurrency(int modelConcurrency) {
+            this.modelConcurrency = modelConcurrency;
+            return this;
+        }
+
+        public Builder distribution(Distribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        public Builder decisionWeights(Map<Objective, Double> decisionWeights) {
+            this.decisionWeights = decisionWeights;
+            return this;
+        }
+
+        public Builder paretoObjectives(List<Objective> paretoObjectives) {
+            this.paretoObjectives = paretoObjectives;
+            return this;
+        }
+
+        public Builder modelReliability(ModelReliability.Policy modelReliability) {
+            this.modelReliability = modelReliability;
+            return this;
+        }
+
+        public Builder resampling(ResamplingPolicy resampling) {
+            this.resampling = resampling;
+            return this;
+        }
+
+        public Builder exportFile(String exportFile) {
+            this.exportFile = exportFile;
+            return this;
+        }
+
+        public Builder historyFile(String historyFile) {
+            this.historyFile = historyFile;
+            return this;
+        }
+
+        public Builder reactive(boolean reactive) {
+            this.reactive = reactive;
+            return this;
+        }
+
+        public Builder traceFile(String traceFile) {
+            this.traceFile = traceFile;
+            return this;
+        }
+
+        public Builder cassette(Cassette cassette) {
+            this.cassette = cassette;
+            return this;
+        }
+
+        public Builder snapshotDirectory(String snapshotDirectory) {
+            this.snapshotDirectory = snapshotDirectory;
+            return this;
+        }
+
+        public Builder mergeSimilarity(double mergeSimilarity) {
+            this.mergeSimilarity = mergeSimilarity;
+            return this;
+        }
+
+        public GrouperProperties build() {
+            return new GrouperProperties(maxConcurrency, maxVariants, maxIterations, minMessageScore,
+                    findingsWordCount, showPrompts, maxCost, creatives, sampleFraction, strata, rankByLowerBound,
+                    feedbackTokenBudget, maxFindings, modelConcurrency, distribution, decisionWeights,
+                    paretoObjectives, modelReliability, resampling, exportFile, historyFile, reactive, traceFile,
+                    cassette, snapshotDirectory, mergeSimilarity);
+        }
+    }
 }
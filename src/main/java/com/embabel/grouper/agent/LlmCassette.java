@@ -0,0 +1,171 @@
+package com.embabel.grouper.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Records LLM responses to a cassette file, or replays them from it,
+ * so full agent runs can be reproduced without calling models.
+ * Each line holds the hash of a request, the response and how long it took.
+ * Identical requests, such as further samples of a presentation, are replayed in the order recorded.
+ * Random choices a run makes, such as which participants to sample, are recorded as seeds so they replay too.
+ * Coordinator runs don't record presentations, which workers make, so they can't be replayed.
+ * Replay can wait for the recorded latency, scaled by the configured speed, so orchestration
+ * can be benchmarked against real response times.
+ */
+@Component
+class LlmCassette {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmCassette.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    record Entry(String request, JsonNode response, long millis) {
+    }
+
+    private final GrouperProperties.Cassette config;
+
+    private final Map<String, Queue<Entry>> recorded = new HashMap<>();
+
+    private BufferedWriter out;
+
+    @Autowired
+    LlmCassette(GrouperProperties properties) {
+        this(properties.cassette());
+    }
+
+    LlmCassette(GrouperProperties.Cassette config) {
+        this.config = config;
+        var file = Path.of(config.file());
+        try {
+            switch (config.mode()) {
+                case RECORD -> {
+                    if (file.getParent() != null) {
+                        Files.createDirectories(file.getParent());
+                    }
+                    out = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    logger.info("Recording LLM responses to {}", file);
+                }
+                case REPLAY -> {
+                    try (var lines = Files.lines(file)) {
+                        for (var line : (Iterable<String>) lines::iterator) {
+                            if (!line.isBlank()) {
+                                var entry = objectMapper.readValue(line, Entry.class);
+                                recorded.computeIfAbsent(entry.request(), k -> new ArrayDeque<>()).add(entry);
+                            }
+                        }
+                    }
+                    logger.info("Replaying {} recorded requests from {}", recorded.size(), file);
+                }
+                case OFF -> {
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open cassette " + file, e);
+        }
+    }
+
+    /**
+     * Make an LLM call, or replay its recorded response
+     *
+     * @param request everything that determines the response, such as model and prompt
+     * @param type    type of the response
+     * @param call    makes the call
+     * @throws IllegalStateException when replaying a request that wasn't recorded
+     */
+    <T> T call(String request, Class<T> type, Supplier<T> call) {
+        return switch (config.mode()) {
+            case OFF -> call.get();
+            case RECORD -> record(hash(request), call);
+            case REPLAY -> replay(hash(request), request, type);
+        };
+    }
+
+    /**
+     * Draw a random seed, or replay the one recorded
+     *
+     * @param request what the seed is for, such as sampling in a given run
+     */
+    long seed(String request) {
+        return call(String.join("\n", "seed", request), Long.class, () -> ThreadLocalRandom.current().nextLong());
+    }
+
+    private <T> T record(String hash, Supplier<T> call) {
+        long start = System.currentTimeMillis();
+        var response = call.get();
+        var entry = new Entry(hash, objectMapper.valueToTree(response), System.currentTimeMillis() - start);
+        try {
+            var line = objectMapper.writeValueAsString(entry);
+            synchronized (this) {
+                out.write(line);
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to record to cassette", e);
+        }
+        return response;
+    }
+
+    private <T> T replay(String hash, String request, Class<T> type) {
+        Entry entry;
+        synchronized (this) {
+            var entries = recorded.get(hash);
+            entry = entries == null ? null : entries.poll();
+        }
+        if (entry == null) {
+            throw new IllegalStateException("No recorded response left for request:\n" + request);
+        }
+        if (config.speed() > 0) {
+            try {
+                Thread.sleep((long) (entry.millis() / config.speed()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        try {
+            return objectMapper.treeToValue(entry.response(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay response for request:\n" + request, e);
+        }
+    }
+
+    private static String hash(String request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.agent.api.annotation.AchievesGoal;
+import com.embabel.agent.api.annotation.Action;
+import com.embabel.agent.api.annotation.Agent;
+import com.embabel.agent.api.common.OperationContext;
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.PresentationQueue;
+import com.embabel.grouper.domain.support.RemoteParticipant;
+
+/**
+ * Agent performing a single queued presentation, on behalf of a coordinator
+ */
+@Agent(description = "React to a message as a member of a focus group")
+record Panelist() {
+
+    @Action
+    @AchievesGoal(description = "Participant has reacted to the message")
+    Model.Reaction react(PresentationQueue.Task task, OperationContext context) {
+        return Presenter.react(context.ai(), presentation(task));
+    }
+
+    static Model.ParticipantMessagePresentation presentation(PresentationQueue.Task task) {
+        // No model means the participant's model is auto-selected
+        var llm = task.model() == null ? LlmOptions.withAutoLlm() : LlmOptions.withModel(task.model());
+        if (task.temperature() != null) {
+            llm = llm.withTemperature(task.temperature());
+        }
+        return new Model.ParticipantMessagePresentation(
+                new RemoteParticipant(task.participant(), task.name(), llm, task.contribution()),
+                new Model.MessageVariant(task.message(), task.wording()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.agent.api.common.autonomy.AgentInvocation;
+import com.embabel.agent.core.AgentPlatform;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.PresentationQueue;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Worker side of distributed mode: performs presentations queued by a coordinator.
+ * Only active if this JVM is configured as a worker.
+ * Each worker JVM can use its own API keys.
+ */
+@Component
+class PresentationWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresentationWorker.class);
+
+    private final AgentPlatform agentPlatform;
+
+    private final PresentationQueue presentationQueue;
+
+    private final CapacityScheduler capacityScheduler;
+
+    private final GrouperProperties.Distribution distribution;
+
+    private volatile boolean running;
+
+    PresentationWorker(
+            AgentPlatform agentPlatform,
+            PresentationQueue presentationQueue,
+            CapacityScheduler capacityScheduler,
+            GrouperProperties properties) {
+        this.agentPlatform = agentPlatform;
+        this.presentationQueue = presentationQueue;
+        this.capacityScheduler = capacityScheduler;
+        this.distribution = properties.distribution();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (distribution.mode() != GrouperProperties.Distribution.Mode.WORKER) {
+            return;
+        }
+        running = true;
+        logger.info("Starting {} presentation workers on queue {}", distribution.workers(), distribution.queueDirectory());
+        for (int i = 0; i < distribution.workers(); i++) {
+            Thread.ofVirtual().name("presentation-worker-" + i).start(this::work);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+    }
+
+    private void work() {
+        while (running) {
+            var task = presentationQueue.claim();
+            if (task.isPresent()) {
+                perform(task.get());
+            } else {
+                try {
+                    Thread.sleep(distribution.pollInterval());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Model whose capacity a task uses, keyed as local runs key it,
+     * so participants with auto-selected models share one key
+     */
+    static String model(PresentationQueue.Task task) {
+        return Model.Strata.MODEL.of(Panelist.presentation(task).participant());
+    }
+
+    private void perform(PresentationQueue.Task task) {
+        try {
+            // Share this worker's capacity by the coordinating run's flow, lane and weight
+            var reaction = capacityScheduler.call(
+                    model(task),
+                    task.flow() == null ? task.batch() : task.flow(),
+                    task.lane() == null ? CapacityScheduler.Lane.STANDARD : CapacityScheduler.Lane.valueOf(task.lane()),
+                    task.weight() > 0 ? task.weight() : 1.0,
+                    () -> AgentInvocation.builder(agentPlatform)
+                            .build(Model.Reaction.class)
+                            .invoke(task));
+            presentationQueue.complete(new PresentationQueue.Result(
+                    task.id(), task.batch(), reaction, System.currentTimeMillis(), null));
+        } catch (RuntimeException e) {
+            logger.warn("Presentation {} to {} failed", task.id(), task.participant(), e);
+            presentationQueue.complete(new PresentationQueue.Result(
+                    task.id(), task.batch(), null, System.currentTimeMillis(), String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.agent.api.common.Ai;
+import com.embabel.grouper.domain.Model;
+
+/**
+ * Presents a message variant to a participant.
+ * Shared by local runs and distributed workers, so both ask the same question.
+ */
+final class Presenter {
+
+    private Presenter() {
+    }
+
+    static Model.Reaction react(Ai ai, Model.ParticipantMessagePresentation messagePresentation) {
+        return react(ai, messagePresentation, RunPlan.empty());
+    }
+
+    /**
+     * Present using prompts already rendered by the plan
+     */
+    static Model.Reaction react(Ai ai, Model.ParticipantMessagePresentation messagePresentation, RunPlan plan) {
+        return react(ai, messagePresentation, plan, plan.render(messagePresentation.messageVariant()));
+    }
+
+    /**
+     * Present a variant the plan has already rendered for this presentation
+     */
+    static Model.Reaction react(
+            Ai ai, Model.ParticipantMessagePresentation messagePresentation, RunPlan plan, RunPlan.RenderedVariant rendered) {
+        var participant = messagePresentation.participant();
+        return ai
+                .withLlm(participant.llm())
+                .withPromptContributor(plan.contributionOf(participant))
+                .withId(rendered.id() + participant.name())
+                .creating(Model.Reaction.class)
+                .fromPrompt(rendered.prompt());
+    }
+}
@@ -0,0 +1,68 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.Model;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Presents as a Reactor pipeline rather than through the platform's parallel map.
+ * Presentations are pulled from the pending list only as in-flight ones complete,
+ * and each reaction is folded into the run as it arrives.
+ * If any presentation fails, those in flight are cancelled rather than awaited.
+ * LLM calls block, so they run on virtual threads shared by every run.
+ */
+@Component
+class ReactivePresenter {
+
+    private final Scheduler scheduler = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "grouper-presentations");
+
+    /**
+     * Reactions to the presentations, in the order they arrive
+     *
+     * @param concurrency  maximum presentations in flight
+     * @param present      performs one presentation, blocking
+     * @param onReaction   called for each reaction before deciding whether to sample again
+     * @param needsAnother whether a presentation should be sampled again
+     */
+    Flux<Model.SpecificReaction> reactions(
+            List<Model.ParticipantMessagePresentation> presentations,
+            int concurrency,
+            Function<Model.ParticipantMessagePresentation, Model.SpecificReaction> present,
+            Consumer<Model.SpecificReaction> onReaction,
+            Predicate<Model.ParticipantMessagePresentation> needsAnother) {
+        return Flux.fromIterable(presentations)
+                .flatMap(presentation -> Mono.fromCallable(() -> present.apply(presentation))
+                                .subscribeOn(scheduler)
+                                .doOnNext(onReaction)
+                                .repeat(() -> needsAnother.test(presentation)),
+                        concurrency);
+    }
+
+    /**
+     * Present and block until every reaction is in
+     */
+    void present(
+            List<Model.ParticipantMessagePresentation> presentations,
+            int concurrency,
+            Function<Model.ParticipantMessagePresentation, Model.SpecificReaction> present,
+            Consumer<Model.SpecificReaction> onReaction,
+            Predicate<Model.ParticipantMessagePresentation> needsAnother) {
+        reactions(presentations, concurrency, present, onReaction, needsAnother).blockLast();
+    }
+
+    @PreDestroy
+    void close() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,38 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.FocusGroupListener;
+
+import java.util.UUID;
+
+/**
+ * Identifies a focus group run. Bound to the agent process blackboard,
+ * so actions can report progress to whoever started the run.
+ *
+ * @param id       unique id of the run
+ * @param message  name of the message being tested
+ * @param group    name of the group it's tested against
+ * @param options  per-run options
+ * @param listener notified as the run progresses
+ */
+public record RunHandle(
+        String id,
+        String message,
+        String group,
+        RunOptions options,
+        FocusGroupListener listener
+) {
+
+    /**
+     * Handle for a run started without one, for example directly through the agent platform
+     */
+    public static RunHandle anonymous() {
+        return new RunHandle(UUID.randomUUID().toString(), null, null, RunOptions.DEFAULT, FocusGroupListener.NO_OP);
+    }
+
+    /**
+     * Flow this run's LLM calls are fairly scheduled in
+     */
+    public String flow() {
+        return options.tenant() != null ? options.tenant() : id;
+    }
+}
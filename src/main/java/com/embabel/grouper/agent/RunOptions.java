@@ -0,0 +1,39 @@
+package com.embabel.grouper.agent;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Per-run options
+ *
+ * @param tenant        who the run is for. Runs for the same tenant share capacity fairly with other tenants.
+ *                      If null, the run has its own share
+ * @param lane          priority lane. If null, single iteration runs go in the express lane
+ * @param weight        relative share of LLM capacity. Defaults to 1.0
+ * @param maxIterations override of the configured maximum iterations if greater than 0
+ */
+public record RunOptions(
+        @Nullable String tenant,
+        @Nullable CapacityScheduler.Lane lane,
+        double weight,
+        int maxIterations
+) {
+
+    public static final RunOptions DEFAULT = new RunOptions(null, null, 1.0, 0);
+
+    public RunOptions {
+        if (weight <= 0.0) {
+            weight = 1.0;
+        }
+    }
+
+    public int maxIterations(GrouperProperties properties) {
+        return maxIterations > 0 ? maxIterations : properties.maxIterations();
+    }
+
+    public CapacityScheduler.Lane lane(GrouperProperties properties) {
+        if (lane != null) {
+            return lane;
+        }
+        return maxIterations(properties) == 1 ? CapacityScheduler.Lane.EXPRESS : CapacityScheduler.Lane.STANDARD;
+    }
+}
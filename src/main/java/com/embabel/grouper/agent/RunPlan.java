@@ -0,0 +1,142 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.common.ai.prompt.PromptContributor;
+import com.embabel.common.util.StringTrimmingUtilsKt;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.Tokens;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What doesn't change between iterations, or between runs of the same message and group,
+ * worked out once so presenting a variant to a participant only has to look things up.
+ * Persona contributions and the message's own variants are rendered up front.
+ * Variants proposed later are rendered when presented, so a plan shared by many runs doesn't grow.
+ */
+final class RunPlan {
+
+    /**
+     * A participant's persona, rendered once
+     */
+    record Contribution(String contribution) implements PromptContributor {
+
+        @NotNull
+        @Override
+        public String contribution() {
+            return contribution;
+        }
+    }
+
+    /**
+     * The prompt presenting a variant, and the id prefix for the interaction
+     */
+    record RenderedVariant(String prompt, String id) {
+    }
+
+    private static final String PREFIX = """
+            You are a member of a focus group.
+            Your replies are confidential and you don't need to worry about
+            anyone knowing what you said, so you can share your feelings
+            honestly without fear of judgment or consequences.
+            Be honest.
+
+            React to the following message given your persona:
+
+            <message>""";
+
+    private final Model.FocusGroup focusGroup;
+
+    private final List<Model.Participant> participants;
+
+    private final Model.MessageVariants messageVariants;
+
+    private final Map<Model.Participant, Contribution> contributions = new HashMap<>();
+
+    private final Map<Model.MessageVariant, RenderedVariant> variants = new HashMap<>();
+
+    private RunPlan(List<Model.Participant> participants, Model.MessageVariants messageVariants) {
+        this.participants = participants;
+        this.messageVariants = messageVariants;
+        this.focusGroup = new Model.FocusGroup(participants);
+    }
+
+    /**
+     * Plan rendering the participants' personas and the message's variants
+     */
+    static RunPlan of(List<Model.Participant> participants, Model.MessageVariants messageVariants) {
+        var plan = new RunPlan(List.copyOf(participants), messageVariants);
+        for (var participant : plan.participants) {
+            plan.contributions.put(participant, new Contribution(participant.contribution()));
+        }
+        for (var variant : messageVariants.expressions()) {
+            plan.variants.put(variant, renderVariant(variant));
+        }
+        return plan;
+    }
+
+    /**
+     * Plan for presentations we know nothing about in advance, such as a worker's
+     */
+    static RunPlan empty() {
+        return new RunPlan(List.of(), null);
+    }
+
+    Model.FocusGroup focusGroup() {
+        return focusGroup;
+    }
+
+    List<Model.Participant> participants() {
+        return participants;
+    }
+
+    /**
+     * Messaging we start from. Null for an empty plan
+     */
+    Model.MessageVariants messageVariants() {
+        return messageVariants;
+    }
+
+    /**
+     * True if this plan was made from these participants and messaging, so is still current
+     */
+    boolean isFor(List<Model.Participant> participants, Model.MessageVariants messageVariants) {
+        return this.participants.equals(participants) && Objects.equals(this.messageVariants, messageVariants);
+    }
+
+    Contribution contributionOf(Model.Participant participant) {
+        var contribution = contributions.get(participant);
+        return contribution != null ? contribution : new Contribution(participant.contribution());
+    }
+
+    /**
+     * Estimated tokens of the prompt presenting a rendered variant to a participant
+     */
+    long promptTokens(Model.Participant participant, RenderedVariant rendered) {
+        return Tokens.estimate(rendered.prompt()) + Tokens.estimate(contributionOf(participant).contribution());
+    }
+
+    RenderedVariant render(Model.MessageVariant messageVariant) {
+        var rendered = variants.get(messageVariant);
+        return rendered != null ? rendered : renderVariant(messageVariant);
+    }
+
+    private static RenderedVariant renderVariant(Model.MessageVariant variant) {
+        return new RenderedVariant(
+                PREFIX + variant.wording() + suffix(variant.message()),
+                StringTrimmingUtilsKt.trim(variant.wording(), 80, 5, "...") + "_");
+    }
+
+    private static String suffix(Model.Message message) {
+        return """
+                </message>
+
+                Assess in terms of whether it would produce the following objective in your mind:
+                <objective>%s</objective>
+                Also consider whether it is effective as <deliverable>%s</deliverable>
+                """.formatted(message.objective(), message.deliverable());
+    }
+}
@@ -0,0 +1,175 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.Model;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Traces focus group runs as OpenTelemetry spans, nested as
+ * run, iteration, action (runFocusGroup or evolvePositioning), then presentation or creative call.
+ * Agent actions may run on any thread, so parents are tracked by run id rather than through the current context.
+ * Presentation spans include time queued for LLM capacity, which is also recorded as an attribute,
+ * so queueing can be told apart from model latency.
+ * Presentations have no retries attribute: LLM calls are retried inside the agent platform, which doesn't report retries.
+ * Repeated samples of a presentation are separate spans, numbered by the sample attribute.
+ * Coordinator runs have no presentation spans, as workers make the presentations.
+ */
+@Component
+class RunTracer {
+
+    static final AttributeKey<String> RUN = AttributeKey.stringKey("grouper.run");
+    static final AttributeKey<String> MESSAGE = AttributeKey.stringKey("grouper.message");
+    static final AttributeKey<String> GROUP = AttributeKey.stringKey("grouper.group");
+    static final AttributeKey<Long> ITERATION = AttributeKey.longKey("grouper.iteration");
+    static final AttributeKey<String> MODEL = AttributeKey.stringKey("grouper.model");
+    static final AttributeKey<String> PARTICIPANT = AttributeKey.stringKey("grouper.participant");
+    static final AttributeKey<String> VARIANT = AttributeKey.stringKey("grouper.variant");
+    static final AttributeKey<Long> SAMPLE = AttributeKey.longKey("grouper.sample");
+    static final AttributeKey<Long> PROMPT_TOKENS = AttributeKey.longKey("grouper.prompt_tokens");
+    static final AttributeKey<Long> QUEUED_MILLIS = AttributeKey.longKey("grouper.queued_ms");
+    static final AttributeKey<Long> PRESENTATIONS = AttributeKey.longKey("grouper.presentations");
+
+    private final Tracer tracer;
+
+    private final Map<String, Span> runs = new ConcurrentHashMap<>();
+
+    private final Map<String, Span> iterations = new ConcurrentHashMap<>();
+
+    RunTracer(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("grouper");
+    }
+
+    void startRun(RunHandle handle) {
+        var span = tracer.spanBuilder("run")
+                .setNoParent()
+                .setAttribute(RUN, handle.id())
+                .setAttribute(MESSAGE, String.valueOf(handle.message()))
+                .setAttribute(GROUP, String.valueOf(handle.group()))
+                .startSpan();
+        runs.put(handle.id(), span);
+    }
+
+    /**
+     * End the run and its last iteration
+     *
+     * @param error why the run failed, if it did
+     */
+    void endRun(RunHandle handle, @Nullable Throwable error) {
+        end(iterations.remove(handle.id()), error);
+        end(runs.remove(handle.id()), error);
+    }
+
+    /**
+     * Start an iteration, ending the previous one.
+     * Runs not started through us aren't traced as a whole, so their actions are top level spans
+     */
+    void startIteration(RunHandle handle, int iteration) {
+        var run = runs.get(handle.id());
+        if (run == null) {
+            return;
+        }
+        var span = child(run, "iteration")
+                .setAttribute(ITERATION, (long) iteration)
+                .startSpan();
+        end(iterations.put(handle.id(), span), null);
+    }
+
+    /**
+     * Span for an action of the current iteration. The caller must end it
+     */
+    Span startAction(RunHandle handle, String action) {
+        return child(iterations.get(handle.id()), action).startSpan();
+    }
+
+    /**
+     * Trace a presentation, including any wait for capacity.
+     * The prompt is only rendered for its id and size if the span is recording
+     *
+     * @param action span of the action presenting
+     * @param plan   plan rendering the prompt
+     * @param sample number of this sample of the presentation, from 1
+     * @param call   calls the model once capacity is available, passing a callback marking that moment
+     */
+    Model.SpecificReaction tracePresentation(
+            Span action,
+            Model.ParticipantMessagePresentation presentation,
+            RunPlan plan,
+            int sample,
+            Function<Runnable, Model.SpecificReaction> call) {
+        long queued = System.nanoTime();
+        var span = tracer.spanBuilder("presentation")
+                .setParent(Context.root().with(action))
+                .setAttribute(MODEL, Model.Strata.MODEL.of(presentation.participant()))
+                .setAttribute(PARTICIPANT, presentation.participant().id())
+                .setAttribute(SAMPLE, (long) sample)
+                .startSpan();
+        if (span.isRecording()) {
+            var rendered = plan.render(presentation.messageVariant());
+            span.setAttribute(VARIANT, rendered.id());
+            span.setAttribute(PROMPT_TOKENS, plan.promptTokens(presentation.participant(), rendered));
+        }
+        try {
+            return call.apply(() -> {
+                span.setAttribute(QUEUED_MILLIS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queued));
+                span.addEvent("capacity acquired");
+            });
+        } catch (RuntimeException e) {
+            fail(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Trace a call to the creative
+     */
+    <T> T traceCreative(Span action, String model, long promptTokens, Supplier<T> call) {
+        var span = tracer.spanBuilder("creative")
+                .setParent(Context.root().with(action))
+                .setAttribute(MODEL, model)
+                .setAttribute(PROMPT_TOKENS, promptTokens)
+                .startSpan();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            fail(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private SpanBuilder child(@Nullable Span parent, String name) {
+        var builder = tracer.spanBuilder(name);
+        return parent == null ? builder.setNoParent() : builder.setParent(Context.root().with(parent));
+    }
+
+    static void fail(Span span, Throwable error) {
+        span.recordException(error);
+        span.setStatus(StatusCode.ERROR, String.valueOf(error.getMessage()));
+    }
+
+    private static void end(@Nullable Span span, @Nullable Throwable error) {
+        if (span == null) {
+            return;
+        }
+        if (error != null) {
+            fail(span, error);
+        }
+        span.end();
+    }
+}
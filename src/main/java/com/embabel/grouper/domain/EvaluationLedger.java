@@ -0,0 +1,132 @@
+package com.embabel.grouper.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every reaction received across iterations, keyed by wording and participant,
+ * so a wording proposed again is never re-presented to someone who has already reacted to it.
+ * Wordings are compared ignoring surrounding whitespace.
+ * If a participant was sampled repeatedly, all their reactions are kept.
+ */
+public class EvaluationLedger {
+
+    private final Map<String, Map<String, List<Model.SpecificReaction>>> reactionsByWording = new HashMap<>();
+
+    private final List<Model.SpecificReaction> inOrderRecorded = new ArrayList<>();
+
+    private int size;
+
+    private final ModelReliability reliability = new ModelReliability();
+
+    private final ReactionHistory.Priors priors;
+
+    public EvaluationLedger() {
+        this(ReactionHistory.Priors.NONE);
+    }
+
+    /**
+     * @param priors past reactions to adopt for wordings nobody in this run has reacted to yet
+     */
+    public EvaluationLedger(ReactionHistory.Priors priors) {
+        this.priors = priors;
+    }
+
+    private static String key(Model.MessageVariant messageVariant) {
+        return messageVariant.wording().trim();
+    }
+
+    public synchronized void record(Model.SpecificReaction reaction) {
+        var presentation = reaction.participantMessagePresentation();
+        var samples = reactionsByWording
+                .computeIfAbsent(key(presentation.messageVariant()), k -> new LinkedHashMap<>())
+                .computeIfAbsent(presentation.participant().id(), k -> new ArrayList<>());
+        if (samples.isEmpty()) {
+            size++;
+        }
+        samples.add(reaction);
+        inOrderRecorded.add(reaction);
+        reliability.record(reaction);
+    }
+
+    /**
+     * Adopt past reactions of these participants to this wording, or a near-identical one,
+     * as if they had reacted in this run. Participants who have already reacted are left alone.
+     *
+     * @return number of participants whose past reactions were adopted
+     */
+    public synchronized int adoptPriors(Model.MessageVariant messageVariant, Collection<? extends Model.Participant> participants) {
+        int adopted = 0;
+        for (var participant : participants) {
+            var presentation = new Model.ParticipantMessagePresentation(participant, messageVariant);
+            if (reactionTo(presentation).isPresent()) {
+                continue;
+            }
+            var past = priors.reactionsOf(participant.id(), messageVariant.wording());
+            for (var prior : past) {
+                record(new Model.SpecificReaction(presentation, prior.reaction(), prior.timestamp()));
+            }
+            if (!past.isEmpty()) {
+                adopted++;
+            }
+        }
+        return adopted;
+    }
+
+    /**
+     * How informative each model has been, over every reaction in the ledger
+     */
+    public ModelReliability reliability() {
+        return reliability;
+    }
+
+    /**
+     * First reaction of this participant to this wording, if any
+     */
+    public synchronized Optional<Model.SpecificReaction> reactionTo(Model.ParticipantMessagePresentation presentation) {
+        return reactionsByWording
+                .getOrDefault(key(presentation.messageVariant()), Map.of())
+                .getOrDefault(presentation.participant().id(), List.of())
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Reactions to this wording from any participant, grouped by participant in the order first received
+     */
+    public synchronized List<Model.SpecificReaction> reactionsTo(Model.MessageVariant messageVariant) {
+        return reactionsByWording.getOrDefault(key(messageVariant), Map.of()).values().stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Every reaction, grouped by wording then participant, in the order first received
+     */
+    public synchronized List<Model.SpecificReaction> reactions() {
+        return reactionsByWording.values().stream()
+                .flatMap(byParticipant -> byParticipant.values().stream())
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Reactions recorded after the first {@code count}, in the order recorded,
+     * so the ledger can be saved incrementally
+     */
+    public synchronized List<Model.SpecificReaction> reactionsSince(int count) {
+        return List.copyOf(inOrderRecorded.subList(count, inOrderRecorded.size()));
+    }
+
+    /**
+     * Number of distinct wording and participant combinations evaluated
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
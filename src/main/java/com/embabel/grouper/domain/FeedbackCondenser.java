@@ -0,0 +1,137 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.util.StringTrimmingUtilsKt;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Condenses focus group feedback and previous learnings for the creative prompt,
+ * so its size stays constant however large the focus group grows.
+ * Reactions to each variant are clustered by Likert rating.
+ * Clusters are ranked by the share of the group they represent and how extreme they are,
+ * and each is represented by the quote of its most heavily weighted participant.
+ * Only the most recent findings are kept.
+ * Ties are broken by wording, rating and participant, so the same reactions condense the same way
+ * whatever order they arrived in, and replayed runs prompt creatives exactly as recorded.
+ *
+ * @param tokenBudget approximate maximum tokens. 0 means unlimited
+ * @param maxFindings maximum number of findings to include, most recent first
+ */
+public record FeedbackCondenser(
+        int tokenBudget,
+        int maxFindings
+) {
+
+    /**
+     * Maximum tokens for each of a representative reaction's positives and negatives
+     */
+    private static final int POINT_TOKENS = 40;
+
+    private static final String HEADER = "What participants said:\n";
+
+    private static final String SEPARATOR = "\n";
+
+    private record Cluster(
+            Model.MessageVariant messageVariant,
+            LikertRating.Scale scale,
+            List<Model.SpecificReaction> reactions,
+            double weight
+    ) {
+
+        /**
+         * Neutral clusters still matter if they're big, but extreme ones matter more
+         */
+        double priority() {
+            var extremity = Math.abs(scale.getValue() - 0.5) * 2;
+            return weight * (0.25 + extremity);
+        }
+    }
+
+    public String condense(FocusGroupRun focusGroupRun, Model.BestScoringVariants bestScoringVariants) {
+        var scores = focusGroupRun.getMessageVariantScores().stream()
+                .sorted(Comparator.comparingDouble(Model.MessageVariantScore::normalizedScore).reversed()
+                        .thenComparing(score -> score.messageVariant().wording()))
+                .map(score -> "- %.2f [%.2f-%.2f]: %s".formatted(
+                        score.normalizedScore(), score.lowerBound(), score.upperBound(), score.messageVariant().wording()))
+                .collect(Collectors.joining("\n"));
+        var fixed = """
+                Scores this round:
+                %s
+
+                Best scoring variants so far:
+                %s
+                """.formatted(scores, bestScoringVariants.summary(maxFindings));
+        if (tokenBudget > 0 && Tokens.estimate(fixed) >= tokenBudget) {
+            return Tokens.truncate(fixed, tokenBudget);
+        }
+
+        var clusters = clusters(focusGroupRun);
+        // Reserve room for the separator, and for saying how many clusters were omitted in case any are
+        var remaining = tokenBudget > 0 ?
+                tokenBudget - Tokens.estimate(fixed) - Tokens.estimate(SEPARATOR) - Tokens.estimate(omitted(clusters.size())) :
+                Integer.MAX_VALUE;
+        if (Tokens.estimate(HEADER) > remaining) {
+            return fixed;
+        }
+        var reactions = new StringBuilder(HEADER);
+        int skipped = 0;
+        for (var cluster : clusters) {
+            var rendered = render(cluster, focusGroupRun);
+            if (Tokens.estimate(reactions) + Tokens.estimate(rendered) > remaining) {
+                skipped++;
+                continue;
+            }
+            reactions.append(rendered);
+        }
+        if (skipped > 0) {
+            reactions.append(omitted(skipped));
+        }
+        return reactions + SEPARATOR + fixed;
+    }
+
+    private static String omitted(int clusters) {
+        return "(%d smaller groups of reactions omitted)\n".formatted(clusters);
+    }
+
+    private static List<Cluster> clusters(FocusGroupRun focusGroupRun) {
+        return focusGroupRun.positioning.messageVariants().stream()
+                .flatMap(mv -> mv.expressions().stream())
+                .flatMap(variant -> focusGroupRun.getReactionsForMessageVariant(variant).stream()
+                        .collect(Collectors.groupingBy(r -> r.reaction().rating().scale()))
+                        .entrySet().stream()
+                        .map(e -> new Cluster(
+                                variant,
+                                e.getKey(),
+                                e.getValue(),
+                                e.getValue().stream()
+                                        .mapToDouble(r -> focusGroupRun.weightOf(r.participantMessagePresentation().participant()))
+                                        .sum())))
+                .sorted(Comparator.comparingDouble(Cluster::priority).reversed()
+                        .thenComparing(cluster -> cluster.messageVariant().wording())
+                        .thenComparing(Cluster::scale))
+                .toList();
+    }
+
+    private static String render(Cluster cluster, FocusGroupRun focusGroupRun) {
+        var representative = cluster.reactions().stream()
+                .max(Comparator.<Model.SpecificReaction>comparingDouble(
+                                r -> focusGroupRun.weightOf(r.participantMessagePresentation().participant()))
+                        .thenComparing(r -> r.participantMessagePresentation().participant().id(), Comparator.reverseOrder()))
+                .orElseThrow()
+                .reaction();
+        var sb = new StringBuilder();
+        sb.append("%s: %s (%d reactions, %.0f%% of group)\n".formatted(
+                cluster.scale(),
+                StringTrimmingUtilsKt.trim(cluster.messageVariant().wording(), 80, 5, "..."),
+                cluster.reactions().size(),
+                cluster.weight() * 100));
+        sb.append("  + ").append(Tokens.truncate(String.valueOf(representative.positives()), POINT_TOKENS)).append("\n");
+        sb.append("  - ").append(Tokens.truncate(String.valueOf(representative.negatives()), POINT_TOKENS)).append("\n");
+        if (representative.quotes() != null && !representative.quotes().isEmpty()) {
+            sb.append("  \"").append(Tokens.truncate(representative.quotes().getFirst(), POINT_TOKENS)).append("\"\n");
+        }
+        return sb.toString();
+    }
+}
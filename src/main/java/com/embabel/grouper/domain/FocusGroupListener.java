@@ -0,0 +1,91 @@
+package com.embabel.grouper.domain;
+
+import java.util.List;
+
+/**
+ * Notified as a focus group run progresses.
+ * Implementations must be thread safe, as reactions arrive concurrently.
+ */
+public interface FocusGroupListener {
+
+    FocusGroupListener NO_OP = new FocusGroupListener() {
+    };
+
+    /**
+     * A participant reacted to a message variant
+     */
+    default void onReaction(Model.SpecificReaction specificReaction) {
+    }
+
+    /**
+     * A reaction arrived in the current iteration
+     *
+     * @param completed presentations completed in this iteration
+     * @param total     presentations in this iteration
+     */
+    default void onProgress(int iteration, int completed, int total) {
+    }
+
+    /**
+     * Scores of every variant tried in an iteration, once all its reactions are in
+     */
+    default void onScores(int iteration, List<Model.MessageVariantScore> scores) {
+    }
+
+    /**
+     * An iteration completed and the best scoring variants were updated
+     */
+    default void onIteration(int iteration, Model.BestScoringVariants bestScoringVariants) {
+    }
+
+    default void onComplete(Model.BestScoringVariants bestScoringVariants) {
+    }
+
+    default void onError(Throwable t) {
+    }
+
+    /**
+     * Listener notifying this listener, then the other
+     */
+    default FocusGroupListener andThen(FocusGroupListener other) {
+        var first = this;
+        return new FocusGroupListener() {
+
+            @Override
+            public void onReaction(Model.SpecificReaction specificReaction) {
+                first.onReaction(specificReaction);
+                other.onReaction(specificReaction);
+            }
+
+            @Override
+            public void onProgress(int iteration, int completed, int total) {
+                first.onProgress(iteration, completed, total);
+                other.onProgress(iteration, completed, total);
+            }
+
+            @Override
+            public void onScores(int iteration, List<Model.MessageVariantScore> scores) {
+                first.onScores(iteration, scores);
+                other.onScores(iteration, scores);
+            }
+
+            @Override
+            public void onIteration(int iteration, Model.BestScoringVariants bestScoringVariants) {
+                first.onIteration(iteration, bestScoringVariants);
+                other.onIteration(iteration, bestScoringVariants);
+            }
+
+            @Override
+            public void onComplete(Model.BestScoringVariants bestScoringVariants) {
+                first.onComplete(bestScoringVariants);
+                other.onComplete(bestScoringVariants);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                first.onError(t);
+                other.onError(t);
+            }
+        };
+    }
+}
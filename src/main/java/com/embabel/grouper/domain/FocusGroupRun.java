@@ -3,9 +3,15 @@ package com.embabel.grouper.domain;
 import com.embabel.common.core.types.HasInfoString;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
 
 /**
  * Mutable: built up as we receive evaluation results.
@@ -13,85 +19,240 @@ import java.util.Map;
  */
 public class FocusGroupRun implements HasInfoString {
 
+    private static final byte BACKFIRE = LikertRating.of(LikertRating.Scale.STRONGLY_DISAGREE).code();
+
     public final Model.FocusGroup focusGroup;
 
+    /**
+     * Participants presented with messages in this run.
+     * May be a subset of the focus group.
+     */
+    public final Model.ParticipantSample sample;
+
     public final Model.Positioning positioning;
 
     public final List<Model.ParticipantMessagePresentation> combinations;
 
     private final List<Model.SpecificReaction> specificReactions = new LinkedList<>();
 
+    private final Map<Model.MessageVariant, VariantScoreAccumulator> accumulators = new LinkedHashMap<>();
+
+    private final Map<Model.MessageVariant, List<Model.SpecificReaction>> reactionsByVariant = new HashMap<>();
+
+    /**
+     * Reactions to each presentation. More than one if we sampled repeatedly
+     */
+    private final Map<Model.ParticipantMessagePresentation, List<Model.SpecificReaction>> samples = new HashMap<>();
+
+    private final ReactionCube cube = new ReactionCube();
+
+    private final Map<Model.Participant, Double> weights = new HashMap<>();
+
+    private final Map<String, Double> stratumWeights = new HashMap<>();
+
+    private final Map<String, Long> stratumSizes = new HashMap<>();
+
     public FocusGroupRun(
             Model.FocusGroup focusGroup,
             Model.Positioning positioning) {
-        this.focusGroup = focusGroup;
+        this(Model.ParticipantSample.census(focusGroup, Model.Strata.PERSONA), positioning);
+    }
+
+    public FocusGroupRun(
+            Model.ParticipantSample sample,
+            Model.Positioning positioning) {
+        this(sample, positioning, model -> 1.0);
+    }
+
+    /**
+     * @param modelWeight multiplier for the weight of reactions from participants played by each model,
+     *                    so less reliable models count for less. Weights are renormalized
+     */
+    public FocusGroupRun(
+            Model.ParticipantSample sample,
+            Model.Positioning positioning,
+            ToDoubleFunction<String> modelWeight) {
+        this.focusGroup = sample.population();
+        this.sample = sample;
         this.positioning = positioning;
 
         // Initialize all combinations
         this.combinations = positioning.messageVariants().stream()
                 .flatMap(mv -> mv.expressions().stream())
-                .flatMap(variant -> focusGroup.participants().stream()
+                .flatMap(variant -> sample.participants().stream()
                         .map(participant -> new Model.ParticipantMessagePresentation(participant, variant)))
                 .toList();
+
+        var populationWeights = focusGroup.normalizedWeights();
+        for (var participant : focusGroup.participants()) {
+            weights.put(participant, populationWeights.getOrDefault(participant, 0.0) *
+                    modelWeight.applyAsDouble(Model.Strata.MODEL.of(participant)));
+        }
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        for (var participant : focusGroup.participants()) {
+            var weight = total > 0 ? weights.get(participant) / total : 0.0;
+            weights.put(participant, weight);
+            if (weight > 0) {
+                var stratum = sample.stratumOf(participant);
+                stratumWeights.merge(stratum, weight, Double::sum);
+                stratumSizes.merge(stratum, 1L, Long::sum);
+            }
+        }
     }
 
-    public boolean isComplete() {
-        return specificReactions.size() == combinations.size();
+    public synchronized boolean isComplete() {
+        return samples.keySet().containsAll(combinations);
     }
 
-    public void record(Model.SpecificReaction reaction) {
+    /**
+     * Record reactions already in the ledger to wordings in our positioning,
+     * including from participants outside this run's sample,
+     * and past reactions from the ledger's reaction history,
+     * so scores build on everything we know.
+     *
+     * @return combinations nobody has evaluated yet, which still need presenting
+     */
+    public List<Model.ParticipantMessagePresentation> carryForward(EvaluationLedger ledger) {
+        var participantsById = focusGroup.participants().stream()
+                .collect(Collectors.toMap(Model.Participant::id, Function.identity(), (a, b) -> a));
+        positioning.messageVariants().stream()
+                .flatMap(mv -> mv.expressions().stream())
+                .distinct()
+                .forEach(variant -> {
+                    ledger.adoptPriors(variant, participantsById.values());
+                    ledger.reactionsTo(variant).forEach(known -> {
+                        var participant = participantsById.get(known.participantMessagePresentation().participant().id());
+                        if (participant != null && weightOf(participant) > 0) {
+                            record(new Model.SpecificReaction(
+                                    new Model.ParticipantMessagePresentation(participant, variant),
+                                    known.reaction(),
+                                    known.timestamp()));
+                        }
+                    });
+                });
+        return combinations.stream()
+                .filter(combination -> ledger.reactionTo(combination).isEmpty())
+                .toList();
+    }
+
+    /**
+     * Record a reaction, updating variant statistics incrementally.
+     * Safe to call as reactions arrive from concurrent presentations.
+     * A further reaction to the same presentation is another sample of the participant's opinion:
+     * statistics use the participant's mean over their samples.
+     */
+    public synchronized void record(Model.SpecificReaction reaction) {
+        var presentation = reaction.participantMessagePresentation();
+        var participant = presentation.participant();
+        var weight = weights.getOrDefault(participant, 0.0);
+        var stratum = sample.stratumOf(participant);
+        var model = Model.Strata.MODEL.of(participant);
+        var accumulator = accumulators.computeIfAbsent(presentation.messageVariant(), VariantScoreAccumulator::new);
+        var previous = samples.computeIfAbsent(presentation, k -> new ArrayList<>());
+        if (!previous.isEmpty()) {
+            accumulator.remove(meanScore(previous), backfireRate(previous), weight, stratum, model);
+        }
+        previous.add(reaction);
+        accumulator.add(meanScore(previous), backfireRate(previous), weight, stratum, model);
+
         specificReactions.add(reaction);
+        reactionsByVariant
+                .computeIfAbsent(presentation.messageVariant(), k -> new ArrayList<>())
+                .add(reaction);
+        cube.add(reaction, weight);
+    }
+
+    // Called for every reaction, so loops over codes rather than streams
+
+    private static double meanScore(List<Model.SpecificReaction> samples) {
+        if (samples.isEmpty()) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            sum += LikertRating.score(samples.get(i).reaction().rating().code());
+        }
+        return sum / samples.size();
+    }
+
+    private static double backfireRate(List<Model.SpecificReaction> samples) {
+        if (samples.isEmpty()) {
+            return 0.0;
+        }
+        int backfires = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            if (samples.get(i).reaction().rating().code() == BACKFIRE) {
+                backfires++;
+            }
+        }
+        return (double) backfires / samples.size();
+    }
+
+    /**
+     * Every reaction to this presentation so far
+     */
+    public synchronized List<Model.SpecificReaction> samplesOf(Model.ParticipantMessagePresentation presentation) {
+        return List.copyOf(samples.getOrDefault(presentation, List.of()));
     }
 
-    public List<Model.SpecificReaction> getReactionsForParticipant(Model.Participant participant) {
+    public synchronized List<Model.SpecificReaction> getReactionsForParticipant(Model.Participant participant) {
         return specificReactions.stream()
                 .filter(r -> r.participantMessagePresentation().participant().equals(participant))
                 .toList();
     }
 
+    /**
+     * Reactions in this run by variant, persona, model and rating,
+     * for segment analysis and segment-aware fitness functions
+     */
+    public ReactionCube cube() {
+        return cube;
+    }
+
+    /**
+     * Normalized weight of the participant in the whole focus group
+     */
+    public double weightOf(Model.Participant participant) {
+        return weights.getOrDefault(participant, 0.0);
+    }
+
+    public synchronized List<Model.SpecificReaction> getReactionsForMessageVariant(Model.MessageVariant messageVariant) {
+        return List.copyOf(reactionsByVariant.getOrDefault(messageVariant, List.of()));
+    }
+
     public Model.MessageVariantScore getBestPerformingMessageVariant() {
-        if (specificReactions.isEmpty()) {
-            return null;
-        }
+        return getMessageVariantScores().stream()
+                .max((s1, s2) -> Double.compare(s1.normalizedScore(), s2.normalizedScore()))
+                .orElse(null);
+    }
 
+    /**
+     * Scores of all variants in our positioning that have received reactions
+     */
+    public List<Model.MessageVariantScore> getMessageVariantScores() {
         return positioning.messageVariants().stream()
                 .flatMap(mv -> mv.expressions().stream())
                 .map(this::getAverageScoreForMessageVariant)
                 .filter(score -> score.count() > 0) // Only consider variants with reactions
-                .max((s1, s2) -> Double.compare(s1.normalizedScore(), s2.normalizedScore()))
-                .orElse(null);
-    }
-
-    public Model.MessageVariantScore getAverageScoreForMessageVariant(Model.MessageVariant messageVariant) {
-        var reactions = specificReactions.stream()
-                .filter(r -> r.participantMessagePresentation().messageVariant().equals(messageVariant))
                 .toList();
+    }
 
-        long count = reactions.size();
-
-        if (count == 0) {
+    /**
+     * Scores are design-weighted: the normalized score is a stratified estimate
+     * of the whole focus group's score. Computed from running statistics,
+     * without rescanning reactions.
+     */
+    public synchronized Model.MessageVariantScore getAverageScoreForMessageVariant(Model.MessageVariant messageVariant) {
+        var accumulator = accumulators.get(messageVariant);
+        if (accumulator == null) {
             return new Model.MessageVariantScore(messageVariant, 0.0, 0.0, 0);
         }
-
-        double average = reactions.stream()
-                .mapToDouble(r -> r.reaction().rating().score())
-                .average()
-                .orElse(0.0);
-
-        // Calculate normalized (weighted) average
-        double totalWeight = reactions.stream()
-                .mapToDouble(r -> focusGroup.normalizedWeight(r.participantMessagePresentation().participant()))
-                .sum();
-
-        double normalizedAverage = reactions.stream()
-                .mapToDouble(r -> r.reaction().rating().score() *
-                        focusGroup.normalizedWeight(r.participantMessagePresentation().participant()))
-                .sum() / totalWeight;
-
-        return new Model.MessageVariantScore(messageVariant, average, normalizedAverage, count);
+        return accumulator.score(
+                stratum -> stratumWeights.getOrDefault(stratum, 0.0),
+                stratum -> stratumSizes.getOrDefault(stratum, 1L));
     }
 
-    public double getAverageScoreForParticipant(Model.Participant participant) {
+    public synchronized double getAverageScoreForParticipant(Model.Participant participant) {
         return specificReactions.stream()
                 .filter(r -> r.participantMessagePresentation().participant().equals(participant))
                 .mapToDouble(r -> r.reaction().rating().score())
@@ -99,85 +260,19 @@ public class FocusGroupRun implements HasInfoString {
                 .orElse(0.0);
     }
 
+    /**
+     * Report on this run, bounded to approximately the given number of tokens
+     *
+     * @param tokenBudget maximum tokens. 0 means unlimited
+     */
+    public FocusGroupRunReport report(boolean verbose, int indent, int tokenBudget) {
+        return new FocusGroupRunReport(this, verbose, indent, tokenBudget);
+    }
+
     @NotNull
     @Override
     public String infoString(Boolean verbose, int indent) {
-        boolean isVerbose = verbose != null && verbose;
-        String indentStr = " ".repeat(indent);
-        StringBuilder sb = new StringBuilder();
-
-        sb.append(indentStr).append("Focus Group Results\n");
-        sb.append(indentStr).append("===================\n\n");
-
-        // Get all message expressions with their scores, sorted by average score (highest first)
-        var messageScores = positioning.messageVariants().stream()
-                .flatMap(mt -> mt.expressions().stream())
-                .map(expr -> {
-                    Model.MessageVariantScore score = getAverageScoreForMessageVariant(expr);
-                    return Map.entry(expr, score);
-                })
-                .sorted((e1, e2) -> Double.compare(e2.getValue().averageScore(), e1.getValue().averageScore()))
-                .toList();
-
-        sb.append(indentStr).append("Message Ranking by Effectiveness:\n");
-        sb.append(indentStr).append("---------------------------------\n");
-        int rank = 1;
-        for (var entry : messageScores) {
-            Model.MessageVariant expr = entry.getKey();
-            Model.MessageVariantScore score = entry.getValue();
-            sb.append(indentStr).append(String.format("%d. %.2f - %s (id: %s)\n",
-                    rank++,
-                    score.averageScore(),
-                    expr.wording().length() > 60 ? expr.wording().substring(0, 57) + "..." : expr.wording(),
-                    expr.message().id()));
-        }
-        sb.append("\n");
-
-        sb.append(indentStr).append("Detailed Results:\n");
-        sb.append(indentStr).append("-----------------\n\n");
-
-        for (var entry : messageScores) {
-            Model.MessageVariant expr = entry.getKey();
-            Model.MessageVariantScore score = entry.getValue();
-
-            sb.append(indentStr).append(String.format("Message: %s (ID: %s)\n", expr.message().content(), expr.message().id()));
-            sb.append(indentStr).append(String.format("Objective: %s\n", expr.message().objective()));
-            sb.append(indentStr).append(String.format("Expression: %s\n", expr.wording()));
-            sb.append(indentStr).append(String.format("Average Score: %.2f - %d reactions\n",
-                    score.averageScore(),
-                    score.count()));
-
-            if (isVerbose) {
-                sb.append(indentStr).append("  Participant Reactions:\n");
-
-                // Get all reactions for this message variant
-                var reactions = specificReactions.stream()
-                        .filter(r -> r.participantMessagePresentation().messageVariant().equals(expr))
-                        .toList();
-
-                for (var reaction : reactions) {
-                    Model.Participant participant = reaction.participantMessagePresentation().participant();
-
-                    sb.append(indentStr).append(String.format("    %s: %.2f (%.0f%%)\n",
-                            participant.name(),
-                            reaction.reaction().rating().score(),
-                            reaction.reaction().rating().score() * 100));
-                    sb.append(indentStr).append(String.format("      Positives: %s\n", reaction.reaction().positives()));
-                    sb.append(indentStr).append(String.format("      Negatives: %s\n", reaction.reaction().negatives()));
-
-                    if (!reaction.reaction().quotes().isEmpty()) {
-                        sb.append(indentStr).append("      Quotes:\n");
-                        for (String quote : reaction.reaction().quotes()) {
-                            sb.append(indentStr).append(String.format("        - \"%s\"\n", quote));
-                        }
-                    }
-                }
-            }
-
-            sb.append("\n");
-        }
-
-        return sb.toString();
+        return report(verbose != null && verbose, indent, 0).toString();
     }
 
     @Override
@@ -0,0 +1,161 @@
+package com.embabel.grouper.domain;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a FocusGroupRun as text, incrementally, into a Writer.
+ * Per-variant sections are built in parallel from pre-indexed reactions,
+ * then written in rank order as each becomes available.
+ * A token budget bounds verbose output: each variant gets an equal share,
+ * and reactions that don't fit are summarized as a count.
+ *
+ * @param run         run to report on
+ * @param verbose     whether to include individual reactions
+ * @param indent      indent for every line
+ * @param tokenBudget approximate maximum tokens to write. 0 means unlimited
+ */
+public record FocusGroupRunReport(
+        FocusGroupRun run,
+        boolean verbose,
+        int indent,
+        int tokenBudget
+) {
+
+    public void writeTo(Writer out) throws IOException {
+        String indentStr = " ".repeat(indent);
+        var header = new StringBuilder();
+
+        header.append(indentStr).append("Focus Group Results\n");
+        header.append(indentStr).append("===================\n\n");
+
+        // Get all message expressions with their scores, sorted by average score (highest first)
+        var messageScores = run.positioning.messageVariants().stream()
+                .flatMap(mt -> mt.expressions().stream())
+                .map(expr -> Map.entry(expr, run.getAverageScoreForMessageVariant(expr)))
+                .sorted((e1, e2) -> Double.compare(e2.getValue().averageScore(), e1.getValue().averageScore()))
+                .toList();
+
+        header.append(indentStr).append("Message Ranking by Effectiveness:\n");
+        header.append(indentStr).append("---------------------------------\n");
+        int rank = 1;
+        for (var entry : messageScores) {
+            Model.MessageVariant expr = entry.getKey();
+            Model.MessageVariantScore score = entry.getValue();
+            header.append(indentStr).append(String.format("%d. %.2f - %s (id: %s)\n",
+                    rank++,
+                    score.averageScore(),
+                    expr.wording().length() > 60 ? expr.wording().substring(0, 57) + "..." : expr.wording(),
+                    expr.message().id()));
+        }
+        header.append("\n");
+
+        header.append(indentStr).append("Detailed Results:\n");
+        header.append(indentStr).append("-----------------\n\n");
+        out.write(header.toString());
+
+        int sectionBudget = tokenBudget <= 0 || messageScores.isEmpty() ?
+                Integer.MAX_VALUE :
+                Math.max(0, tokenBudget - Tokens.estimate(header)) / messageScores.size();
+        try {
+            messageScores.parallelStream()
+                    .map(entry -> section(entry.getKey(), entry.getValue(), indentStr, sectionBudget))
+                    .forEachOrdered(section -> {
+                        try {
+                            out.write(section);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private String section(
+            Model.MessageVariant expr,
+            Model.MessageVariantScore score,
+            String indentStr,
+            int sectionBudget) {
+        var sb = new StringBuilder();
+        sb.append(indentStr).append(String.format("Message: %s (ID: %s)\n", expr.message().content(), expr.message().id()));
+        sb.append(indentStr).append(String.format("Objective: %s\n", expr.message().objective()));
+        sb.append(indentStr).append(String.format("Expression: %s\n", expr.wording()));
+        sb.append(indentStr).append(String.format("Average Score: %.2f - %d reactions\n",
+                score.averageScore(),
+                score.count()));
+        sb.append(indentStr).append(String.format("Weighted Score: %.2f [%.2f-%.2f], model disagreement %.2f\n",
+                score.normalizedScore(),
+                score.lowerBound(),
+                score.upperBound(),
+                score.modelDisagreement()));
+        sb.append(indentStr).append(String.format("Worst Segment: %.2f, backfire %.0f%%\n",
+                score.worstSegmentScore(),
+                score.backfireRate() * 100));
+        var byModel = run.cube().where(ReactionCube.Dimension.VARIANT, expr.wording().trim())
+                .rollup(ReactionCube.Dimension.MODEL);
+        if (byModel.size() > 1) {
+            sb.append(indentStr).append("By Model: ").append(byModel.entrySet().stream()
+                    .map(e -> String.format("%s %.2f", e.getKey(), e.getValue().weightedMean()))
+                    .collect(Collectors.joining(", "))).append("\n");
+        }
+
+        if (verbose) {
+            sb.append(indentStr).append("  Participant Reactions:\n");
+
+            var reactions = run.getReactionsForMessageVariant(expr);
+            int written = 0;
+            for (var reaction : reactions) {
+                var rendered = reaction(reaction, indentStr);
+                if (Tokens.estimate(sb) + Tokens.estimate(rendered) > sectionBudget) {
+                    break;
+                }
+                sb.append(rendered);
+                written++;
+            }
+            if (written < reactions.size()) {
+                sb.append(indentStr).append(String.format("    ... and %d more reactions\n", reactions.size() - written));
+            }
+        }
+
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    private static String reaction(Model.SpecificReaction reaction, String indentStr) {
+        var sb = new StringBuilder();
+        Model.Participant participant = reaction.participantMessagePresentation().participant();
+
+        sb.append(indentStr).append(String.format("    %s: %.2f (%.0f%%)\n",
+                participant.name(),
+                reaction.reaction().rating().score(),
+                reaction.reaction().rating().score() * 100));
+        sb.append(indentStr).append(String.format("      Positives: %s\n", reaction.reaction().positives()));
+        sb.append(indentStr).append(String.format("      Negatives: %s\n", reaction.reaction().negatives()));
+
+        if (!reaction.reaction().quotes().isEmpty()) {
+            sb.append(indentStr).append("      Quotes:\n");
+            for (String quote : reaction.reaction().quotes()) {
+                sb.append(indentStr).append(String.format("        - \"%s\"\n", quote));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        var writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            // Can't happen with a StringWriter
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
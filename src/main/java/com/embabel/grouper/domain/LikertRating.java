@@ -1,10 +1,23 @@
 package com.embabel.grouper.domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
- * Likert rating that can be converted to a normalized score
+ * Likert rating that can be converted to a normalized score.
+ * There's one shared instance per point on the scale, which deserialization returns,
+ * so parsing a reaction allocates no rating.
+ * Each point has a byte code, its position on the scale, for compact storage and table lookup of scores.
+ * A rating must have a point on the scale, so a reaction without one fails to parse rather than to score.
  */
 public record LikertRating(Scale scale) {
 
+    public LikertRating {
+        if (scale == null) {
+            throw new IllegalArgumentException("Likert rating has no point on the scale");
+        }
+    }
+
     /**
      * Likert scale rating
      */
@@ -26,10 +39,58 @@ public record LikertRating(Scale scale) {
         }
     }
 
+    private static final LikertRating[] RATINGS;
+
+    /**
+     * Score by code
+     */
+    private static final double[] SCORES;
+
+    static {
+        var scales = Scale.values();
+        RATINGS = new LikertRating[scales.length];
+        SCORES = new double[scales.length];
+        for (var scale : scales) {
+            RATINGS[scale.ordinal()] = new LikertRating(scale);
+            SCORES[scale.ordinal()] = scale.getValue();
+        }
+    }
+
+    /**
+     * Shared rating for this point on the scale
+     *
+     * @throws IllegalArgumentException if the scale is null
+     */
+    @JsonCreator
+    public static LikertRating of(@JsonProperty("scale") Scale scale) {
+        if (scale == null) {
+            throw new IllegalArgumentException("Likert rating has no point on the scale");
+        }
+        return RATINGS[scale.ordinal()];
+    }
+
+    public static LikertRating of(byte code) {
+        return RATINGS[code];
+    }
+
+    /**
+     * Score from 0-1 of the rating with this code
+     */
+    public static double score(byte code) {
+        return SCORES[code];
+    }
+
+    /**
+     * Position on the scale, from 0 for strongly disagree
+     */
+    public byte code() {
+        return (byte) scale.ordinal();
+    }
+
     /**
      * Return a score from 0-1 where 0 is strongly disagree
      */
     public double score() {
-        return scale.getValue();
+        return SCORES[scale.ordinal()];
     }
 }
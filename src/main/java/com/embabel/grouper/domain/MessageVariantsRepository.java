@@ -2,8 +2,15 @@ package com.embabel.grouper.domain;
 
 import org.springframework.lang.Nullable;
 
+import java.util.List;
+
 public interface MessageVariantsRepository {
 
     @Nullable
     Model.MessageVariants findByName(String name);
+
+    /**
+     * Names of the messages matching a glob, such as smok*
+     */
+    List<String> findNames(String glob);
 }
@@ -9,10 +9,15 @@ import io.vavr.collection.Vector;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -112,7 +117,10 @@ public abstract class Model {
     public record FocusGroup(
             List<Participant> participants
     ) {
-        private Map<Participant, Double> normalizedWeights() {
+        /**
+         * Normalized weights of all participants. Cheaper than asking for each participant's
+         */
+        public Map<Participant, Double> normalizedWeights() {
             double total = participants.stream()
                     .mapToDouble(Participant::populationPercentage)
                     .sum();
@@ -127,6 +135,97 @@ public abstract class Model {
         public double normalizedWeight(Participant participant) {
             return normalizedWeights().getOrDefault(participant, 0.0);
         }
+
+        /**
+         * Draw a stratified random sample of participants.
+         * Each stratum keeps at least one participant, so every persona (or model)
+         * is still heard from even with a small fraction.
+         *
+         * @param fraction fraction of each stratum to sample. 1.0 or more means everyone
+         * @param strata   how to group participants into strata
+         * @param random   source of randomness
+         */
+        public ParticipantSample stratifiedSample(double fraction, Strata strata, Random random) {
+            if (fraction >= 1.0) {
+                return ParticipantSample.census(this, strata);
+            }
+            var sampled = participants.stream()
+                    .collect(Collectors.groupingBy(strata::of, LinkedHashMap::new, Collectors.toList()))
+                    .values().stream()
+                    .flatMap(stratum -> {
+                        var shuffled = new ArrayList<>(stratum);
+                        Collections.shuffle(shuffled, random);
+                        return shuffled.stream().limit(Math.max(1, Math.round(stratum.size() * fraction)));
+                    })
+                    .toList();
+            return new ParticipantSample(this, strata, sampled);
+        }
+    }
+
+    /**
+     * How participants are grouped into strata for sampling
+     */
+    public enum Strata {
+        PERSONA,
+        MODEL;
+
+        public String of(Participant participant) {
+            return switch (this) {
+                case PERSONA -> participant.name();
+                case MODEL -> String.valueOf(participant.llm().getModel());
+            };
+        }
+    }
+
+    /**
+     * Participants actually presented with messages in one iteration,
+     * along with what we need to weight their reactions back up to the whole focus group.
+     *
+     * @param population   the whole focus group
+     * @param strata       how participants were stratified
+     * @param participants the sampled participants
+     */
+    public record ParticipantSample(
+            FocusGroup population,
+            Strata strata,
+            List<Participant> participants
+    ) {
+
+        public static ParticipantSample census(FocusGroup focusGroup, Strata strata) {
+            return new ParticipantSample(focusGroup, strata, focusGroup.participants());
+        }
+
+        public String stratumOf(Participant participant) {
+            return strata.of(participant);
+        }
+
+        /**
+         * This sample without participants that fail the test,
+         * unless that would leave nobody
+         */
+        public ParticipantSample restrictedTo(Predicate<Participant> test) {
+            var kept = participants.stream().filter(test).toList();
+            return kept.isEmpty() ? this : new ParticipantSample(population, strata, kept);
+        }
+
+        /**
+         * Share of the population (by normalized weight) in the given stratum
+         */
+        public double stratumWeight(String stratum) {
+            return population.participants().stream()
+                    .filter(p -> stratumOf(p).equals(stratum))
+                    .mapToDouble(population::normalizedWeight)
+                    .sum();
+        }
+
+        /**
+         * Number of participants in the given stratum of the whole population
+         */
+        public long stratumSize(String stratum) {
+            return population.participants().stream()
+                    .filter(p -> stratumOf(p).equals(stratum))
+                    .count();
+        }
     }
 
     /**
@@ -165,63 +264,162 @@ public abstract class Model {
 
     /**
      * Average score for a message variant, with count of reactions
+     *
+     * @param normalizedScore   design-weighted estimate of the population score
+     * @param standardError     standard error of normalizedScore due to sampling participants.
+     *                          0 if every participant reacted
+     * @param variance          weighted variance of individual scores
+     * @param lowerBound        lower bound of the 95% interval around normalizedScore
+     * @param upperBound        upper bound of the 95% interval around normalizedScore
+     * @param modelDisagreement spread between the highest and lowest per-model average scores
+     * @param worstSegmentScore average score of the lowest scoring stratum
+     * @param backfireRate      weighted share of reactions that strongly disagreed
      */
     public record MessageVariantScore(
             MessageVariant messageVariant,
             double averageScore,
             double normalizedScore,
-            long count
+            long count,
+            double standardError,
+            double variance,
+            double lowerBound,
+            double upperBound,
+            double modelDisagreement,
+            double worstSegmentScore,
+            double backfireRate
     ) {
+
+        public MessageVariantScore(MessageVariant messageVariant, double averageScore, double normalizedScore, long count) {
+            this(messageVariant, averageScore, normalizedScore, count, 0.0, 0.0, normalizedScore, normalizedScore, 0.0,
+                    normalizedScore, 0.0);
+        }
     }
 
     public static class BestScoringVariants {
-        private Vector<MessageVariantScore> bestVariants = Vector.empty();
         private final GrouperProperties config;
+        private final TopVariants topVariants;
         private Vector<String> findings = Vector.empty();
+        private final EvaluationLedger ledger;
+        private final ParetoFront paretoFront;
+        private final WordingIndex tried = new WordingIndex();
+        private final RunProfile profile;
 
         public BestScoringVariants(GrouperProperties config) {
+            this(config, ReactionHistory.Priors.NONE);
+        }
+
+        /**
+         * @param priors past reactions of this group to this message, to warm start from
+         */
+        public BestScoringVariants(GrouperProperties config, ReactionHistory.Priors priors) {
             this.config = config;
+            this.ledger = new EvaluationLedger(priors);
+            this.topVariants = new TopVariants(config.maxVariants(), config::decisionScore);
+            this.paretoFront = new ParetoFront(config.paretoObjectives());
+            this.profile = new RunProfile(config.maxConcurrency());
+        }
+
+        /**
+         * Where presentations spent their time
+         */
+        public RunProfile profile() {
+            return profile;
         }
 
+        /**
+         * Every reaction so far, across iterations
+         */
+        public EvaluationLedger ledger() {
+            return ledger;
+        }
+
+        /**
+         * Best variants so far, highest decision score first
+         */
         public List<Model.MessageVariantScore> bestVariants() {
-            return bestVariants.asJava();
+            return topVariants.byDecisionScore();
+        }
+
+        /**
+         * Variants that no other variant beats on every one of the configured objectives
+         */
+        public List<Model.MessageVariantScore> paretoFront() {
+            return paretoFront.front();
+        }
+
+        /**
+         * Variants that were once among the best but have been pushed out
+         */
+        public List<TopVariants.Archived> archive() {
+            return topVariants.archive();
         }
 
         public void updateFrom(FocusGroupRun focusGroupRun,
                                GrouperProperties config) {
-            var newScores = Vector.ofAll(
-                    focusGroupRun.positioning.messageVariants().stream()
-                            .flatMap(mv -> mv.expressions().stream())
-                            .map(focusGroupRun::getAverageScoreForMessageVariant)
-                            .filter(score -> score.count() > 0)
-                            .toList()
-            );
+            // New scores include carried forward reactions, so replace earlier scores for the same wording
+            for (var score : focusGroupRun.getMessageVariantScores()) {
+                offer(score);
+            }
+        }
 
-            bestVariants = bestVariants
-                    .appendAll(newScores)
-                    .distinctBy(score -> score.messageVariant().wording().trim())
-                    .sorted(Comparator.comparingDouble(config::decisionScore).reversed())
-                    .take(config.maxVariants());
+        /**
+         * Add a score, replacing any earlier score for the same wording
+         */
+        public void offer(MessageVariantScore score) {
+            topVariants.offer(score);
+            paretoFront.offer(score);
+            tried.add(score.messageVariant().wording());
+        }
+
+        /**
+         * Wording already tried that is at least this similar to this one, or this wording if there's none.
+         * Proposing a tried wording again costs nothing, as its reactions are carried forward.
+         */
+        public String canonicalWording(String wording, double minSimilarity) {
+            return tried.nearest(wording, 1).stream()
+                    .filter(match -> match.similarity() >= minSimilarity)
+                    .map(WordingIndex.Match::wording)
+                    .findFirst()
+                    .orElse(wording);
+        }
+
+        /**
+         * Tried wordings most similar to this one, most similar first
+         */
+        public List<WordingIndex.Match> similarWordings(String wording, int k) {
+            return tried.nearest(wording, k);
+        }
+
+        public List<String> findings() {
+            return findings.asJava();
         }
 
         public void addFinding(String finding) {
             findings = findings.append(finding);
         }
 
-        @NotNull
-        @Override
-        public String toString() {
-            var variants = bestVariants
-                    .sorted(Comparator.comparingDouble(Model.MessageVariantScore::normalizedScore).reversed())
-                    .map(mv -> "%.2f: %s".formatted(config.decisionScore(mv), mv.messageVariant().wording()))
+        /**
+         * Summary of the best variants and the most recent findings
+         *
+         * @param maxFindings maximum number of findings to include
+         */
+        public String summary(int maxFindings) {
+            var variants = topVariants.byNormalizedScore().stream()
+                    .map(mv -> "%.2f [%.2f-%.2f]: %s".formatted(
+                            config.decisionScore(mv), mv.lowerBound(), mv.upperBound(), mv.messageVariant().wording()))
                     .collect(Collectors.joining("\n"));
             return """
                     %s
                     
                     Findings:
                     - %s
-                    """.formatted(variants, findings.collect(Collectors.joining("\n- ")));
+                    """.formatted(variants, findings.takeRight(maxFindings).collect(Collectors.joining("\n- ")));
+        }
 
+        @NotNull
+        @Override
+        public String toString() {
+            return summary(findings.size());
         }
     }
 
@@ -0,0 +1,214 @@
+package com.embabel.grouper.domain;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How much each model playing participants tells us, updated as reactions arrive.
+ * A model that always rates NEUTRAL, rarely varies its rating,
+ * or agrees with other models playing the same persona no better than chance
+ * adds cost and noise, so it can be down-weighted or no longer asked.
+ */
+public class ModelReliability {
+
+    /**
+     * What to do about low-information models
+     *
+     * @param action          off, downweight or skip
+     * @param minReactions    reactions from a model before we judge it
+     * @param minEntropy      normalized entropy of ratings below which a model is too predictable
+     * @param minAgreement    agreement with other models below which a model is too noisy.
+     *                        0.6 is roughly what two models rating at random would achieve
+     * @param maxNeutralShare share of NEUTRAL ratings above which a model is sitting on the fence
+     */
+    public record Policy(
+            Action action,
+            int minReactions,
+            double minEntropy,
+            double minAgreement,
+            double maxNeutralShare
+    ) {
+
+        public enum Action {
+            OFF,
+            /**
+             * Reduce the weight of low-information models' reactions
+             */
+            DOWNWEIGHT,
+            /**
+             * Also stop presenting to low-information models, unless no model is more informative
+             */
+            SKIP
+        }
+
+        public static final Policy DEFAULT = new Policy(null, 0, 0.0, 0.0, 0.0);
+
+        public Policy {
+            if (action == null) {
+                action = Action.DOWNWEIGHT;
+            }
+            if (minReactions <= 0) {
+                minReactions = 20;
+            }
+            if (minEntropy <= 0.0) {
+                minEntropy = 0.25;
+            }
+            if (minAgreement <= 0.0) {
+                minAgreement = 0.6;
+            }
+            if (maxNeutralShare <= 0.0) {
+                maxNeutralShare = 0.8;
+            }
+        }
+    }
+
+    /**
+     * Reliability statistics for one model
+     *
+     * @param reactions    reactions received
+     * @param entropy      entropy of ratings, normalized to 0-1. 0 means always the same rating
+     * @param variance     variance of scores
+     * @param agreement    1 minus the mean difference from other models' scores for the same persona and variant.
+     *                     1 if no other model has rated the same things
+     * @param neutralShare share of NEUTRAL ratings
+     */
+    public record Stats(
+            long reactions,
+            double entropy,
+            double variance,
+            double agreement,
+            double neutralShare
+    ) {
+
+        /**
+         * How informative the model is, from 0 to 1, given the policy.
+         * 1 unless the model falls short of a threshold
+         */
+        public double informativeness(Policy policy) {
+            if (reactions < policy.minReactions()) {
+                return 1.0;
+            }
+            double informativeness = Math.min(1.0, entropy / policy.minEntropy()) *
+                    Math.min(1.0, agreement / policy.minAgreement());
+            if (neutralShare > policy.maxNeutralShare()) {
+                informativeness *= (1.0 - neutralShare) / (1.0 - policy.maxNeutralShare());
+            }
+            return informativeness;
+        }
+    }
+
+    private static final double MAX_ENTROPY = Math.log(LikertRating.Scale.values().length);
+
+    /**
+     * Least weight of a model we still present to, so down-weighting never drops a model
+     */
+    static final double MIN_WEIGHT = 0.1;
+
+    private static final class Accumulator {
+
+        private final Map<LikertRating.Scale, Long> ratings = new EnumMap<>(LikertRating.Scale.class);
+
+        private long n;
+
+        private double mean;
+
+        private double m2;
+
+        private long comparisons;
+
+        private double differenceSum;
+
+        void add(LikertRating.Scale scale) {
+            ratings.merge(scale, 1L, Long::sum);
+            n++;
+            double delta = scale.getValue() - mean;
+            mean += delta / n;
+            m2 += delta * (scale.getValue() - mean);
+        }
+
+        void compare(double difference) {
+            comparisons++;
+            differenceSum += difference;
+        }
+
+        Stats stats() {
+            double entropy = 0.0;
+            for (var count : ratings.values()) {
+                double p = (double) count / n;
+                entropy -= p * Math.log(p);
+            }
+            return new Stats(
+                    n,
+                    entropy / MAX_ENTROPY,
+                    n > 0 ? m2 / n : 0.0,
+                    comparisons > 0 ? 1.0 - differenceSum / comparisons : 1.0,
+                    n > 0 ? (double) ratings.getOrDefault(LikertRating.Scale.NEUTRAL, 0L) / n : 0.0);
+        }
+    }
+
+    private final Map<String, Accumulator> models = new HashMap<>();
+
+    /**
+     * Scores each model gave to each persona and wording, for comparing models
+     */
+    private final Map<String, Map<String, Double>> scoresByPresentation = new HashMap<>();
+
+    public synchronized void record(Model.SpecificReaction reaction) {
+        var presentation = reaction.participantMessagePresentation();
+        var model = Model.Strata.MODEL.of(presentation.participant());
+        var scale = reaction.reaction().rating().scale();
+        var accumulator = models.computeIfAbsent(model, k -> new Accumulator());
+        accumulator.add(scale);
+
+        var others = scoresByPresentation.computeIfAbsent(
+                presentation.participant().name() + "\n" + presentation.messageVariant().wording().trim(),
+                k -> new HashMap<>());
+        others.forEach((otherModel, otherScore) -> {
+            if (!otherModel.equals(model)) {
+                double difference = Math.abs(scale.getValue() - otherScore);
+                accumulator.compare(difference);
+                models.get(otherModel).compare(difference);
+            }
+        });
+        others.put(model, scale.getValue());
+    }
+
+    public synchronized Stats stats(String model) {
+        var accumulator = models.get(model);
+        return accumulator == null ? new Stats(0, 0.0, 0.0, 1.0, 0.0) : accumulator.stats();
+    }
+
+    /**
+     * Statistics for every model we've heard from, by model name
+     */
+    public synchronized Map<String, Stats> stats() {
+        var stats = new TreeMap<String, Stats>();
+        models.forEach((model, accumulator) -> stats.put(model, accumulator.stats()));
+        return stats;
+    }
+
+    /**
+     * Multiplier for the weight of this model's reactions.
+     * Down-weighting never goes below {@link #MIN_WEIGHT}.
+     * 0 means we should no longer present to it, which only happens under the skip policy.
+     * Under the skip policy, the most informative model is never skipped.
+     */
+    public synchronized double weight(String model, Policy policy) {
+        if (policy.action() == Policy.Action.OFF) {
+            return 1.0;
+        }
+        double informativeness = stats(model).informativeness(policy);
+        if (policy.action() == Policy.Action.SKIP && informativeness < 0.5) {
+            double best = models.values().stream()
+                    .mapToDouble(a -> a.stats().informativeness(policy))
+                    .max()
+                    .orElse(1.0);
+            if (informativeness < best) {
+                return 0.0;
+            }
+        }
+        return Math.max(MIN_WEIGHT, informativeness);
+    }
+}
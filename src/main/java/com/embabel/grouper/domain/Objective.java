@@ -0,0 +1,73 @@
+package com.embabel.grouper.domain;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Something we want from a message variant, read from its score.
+ * Every objective is between 0 and 1, and higher is better,
+ * so objectives can be blended into a decision score or traded off on a Pareto front.
+ * All are computed from the same running aggregates, in the same pass.
+ */
+public enum Objective implements ToDoubleFunction<Model.MessageVariantScore> {
+
+    /**
+     * Design-weighted estimate of the whole focus group's score
+     */
+    WEIGHTED_MEAN {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return score.normalizedScore();
+        }
+    },
+
+    /**
+     * Unweighted mean score of everyone who reacted
+     */
+    AVERAGE {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return score.averageScore();
+        }
+    },
+
+    /**
+     * Lower bound of the interval around the weighted mean:
+     * only high if the variant is convincingly good
+     */
+    LOWER_BOUND {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return score.lowerBound();
+        }
+    },
+
+    /**
+     * Score of the least convinced persona (or model, depending on strata)
+     */
+    WORST_SEGMENT {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return score.worstSegmentScore();
+        }
+    },
+
+    /**
+     * Share of the group who did not strongly disagree
+     */
+    NO_BACKFIRE {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return 1.0 - score.backfireRate();
+        }
+    },
+
+    /**
+     * How closely the different models agree
+     */
+    MODEL_AGREEMENT {
+        @Override
+        public double applyAsDouble(Model.MessageVariantScore score) {
+            return 1.0 - score.modelDisagreement();
+        }
+    }
+}
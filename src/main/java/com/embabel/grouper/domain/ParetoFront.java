@@ -0,0 +1,94 @@
+package com.embabel.grouper.domain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Variants no other variant beats on every objective,
+ * so we can choose trade-offs, such as a slightly lower mean for less backfire,
+ * without re-running panels.
+ * Only the latest score for each wording counts.
+ */
+public class ParetoFront {
+
+    private final List<? extends ToDoubleFunction<Model.MessageVariantScore>> objectives;
+
+    private final Map<String, double[]> front = new LinkedHashMap<>();
+
+    private final Map<String, double[]> dominated = new HashMap<>();
+
+    private final Map<String, Model.MessageVariantScore> scores = new HashMap<>();
+
+    public ParetoFront(List<? extends ToDoubleFunction<Model.MessageVariantScore>> objectives) {
+        this.objectives = List.copyOf(objectives);
+    }
+
+    private static String key(Model.MessageVariantScore score) {
+        return score.messageVariant().wording().trim();
+    }
+
+    private double[] evaluate(Model.MessageVariantScore score) {
+        var values = new double[objectives.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = objectives.get(i).applyAsDouble(score);
+        }
+        return values;
+    }
+
+    /**
+     * Whether a is at least as good as b on every objective and better on one
+     */
+    private static boolean dominates(double[] a, double[] b) {
+        boolean better = false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < b[i]) {
+                return false;
+            }
+            better |= a[i] > b[i];
+        }
+        return better;
+    }
+
+    public synchronized void offer(Model.MessageVariantScore score) {
+        var key = key(score);
+        scores.put(key, score);
+        dominated.remove(key);
+        var previous = front.remove(key);
+        insert(key, evaluate(score));
+        if (previous != null) {
+            // Whatever the old score dominated may be back on the front
+            var candidates = new ArrayList<>(dominated.entrySet());
+            dominated.clear();
+            candidates.forEach(c -> insert(c.getKey(), c.getValue()));
+        }
+    }
+
+    private void insert(String key, double[] values) {
+        for (var member : front.values()) {
+            if (dominates(member, values)) {
+                dominated.put(key, values);
+                return;
+            }
+        }
+        var it = front.entrySet().iterator();
+        while (it.hasNext()) {
+            var member = it.next();
+            if (dominates(values, member.getValue())) {
+                dominated.put(member.getKey(), member.getValue());
+                it.remove();
+            }
+        }
+        front.put(key, values);
+    }
+
+    /**
+     * Scores on the front, in the order they joined it
+     */
+    public synchronized List<Model.MessageVariantScore> front() {
+        return front.keySet().stream().map(scores::get).toList();
+    }
+}
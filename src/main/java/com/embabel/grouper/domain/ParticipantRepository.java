@@ -5,4 +5,9 @@ import java.util.List;
 public interface ParticipantRepository {
 
     List<Model.Participant> findByGroup(String group);
-}
\ No newline at end of file
+
+    /**
+     * Names of the groups matching a glob, such as english_*
+     */
+    List<String> findGroups(String glob);
+}
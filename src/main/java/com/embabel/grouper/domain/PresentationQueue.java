@@ -0,0 +1,106 @@
+package com.embabel.grouper.domain;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Queue of presentations shared between a coordinator, which owns the focus group run,
+ * and workers, which present messages to participants.
+ * Tasks and results are plain data so they can cross process boundaries.
+ */
+public interface PresentationQueue {
+
+    /**
+     * A presentation of a message variant to a participant, to be performed by a worker
+     *
+     * @param id           unique id of the task
+     * @param batch        batch the task belongs to, such as one iteration of a run
+     * @param flow         flow the coordinating run's LLM calls are fairly scheduled in
+     * @param lane         name of the coordinating run's priority lane
+     * @param weight       the coordinating run's relative share of LLM capacity
+     * @param participant  participant's id
+     * @param name         participant's name
+     * @param contribution participant's prompt contribution: their persona
+     * @param model        model to use, or null if auto-selected
+     * @param temperature  temperature to use, or null for the default
+     * @param message      message being expressed
+     * @param wording      wording to present
+     */
+    record Task(
+            String id,
+            String batch,
+            String flow,
+            String lane,
+            double weight,
+            String participant,
+            String name,
+            String contribution,
+            String model,
+            Double temperature,
+            Model.Message message,
+            String wording
+    ) {
+
+        public static Task of(
+                String id,
+                String batch,
+                String flow,
+                String lane,
+                double weight,
+                Model.ParticipantMessagePresentation presentation) {
+            var participant = presentation.participant();
+            return new Task(
+                    id,
+                    batch,
+                    flow,
+                    lane,
+                    weight,
+                    participant.id(),
+                    participant.name(),
+                    participant.contribution(),
+                    participant.llm().getModel(),
+                    participant.llm().getTemperature(),
+                    presentation.messageVariant().message(),
+                    presentation.messageVariant().wording());
+        }
+    }
+
+    /**
+     * Outcome of a task
+     *
+     * @param taskId    id of the task
+     * @param batch     batch the task belongs to
+     * @param reaction  the reaction, or null if the task failed
+     * @param timestamp when the reaction was received, in epoch milliseconds
+     * @param error     error message if the task failed
+     */
+    record Result(
+            String taskId,
+            String batch,
+            Model.Reaction reaction,
+            long timestamp,
+            String error
+    ) {
+    }
+
+    void submit(Task task);
+
+    /**
+     * Claim the next task, if any, so no other worker performs it
+     */
+    Optional<Task> claim();
+
+    void complete(Result result);
+
+    /**
+     * Remove and return results available for the batch
+     */
+    List<Result> takeResults(String batch);
+
+    /**
+     * Return tasks claimed longer ago than the timeout to the queue,
+     * in case their worker died
+     */
+    void requeueStale(Duration claimTimeout);
+}
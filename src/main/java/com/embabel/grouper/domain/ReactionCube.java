@@ -0,0 +1,187 @@
+package com.embabel.grouper.domain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Counts of reactions by variant, persona, model and Likert rating, kept up to date as reactions arrive.
+ * Answers questions like "how did Aidan rate this variant across models"
+ * by reading at most one cell per combination of dimensions, never the reactions themselves.
+ * Every sample counts, so a participant asked repeatedly appears more than once.
+ */
+public class ReactionCube {
+
+    public enum Dimension {
+        VARIANT,
+        PERSONA,
+        MODEL,
+        RATING
+    }
+
+    /**
+     * Coordinates of one cell
+     */
+    public record Cell(
+            String variant,
+            String persona,
+            String model,
+            LikertRating.Scale rating
+    ) {
+
+        public String get(Dimension dimension) {
+            return switch (dimension) {
+                case VARIANT -> variant;
+                case PERSONA -> persona;
+                case MODEL -> model;
+                case RATING -> rating.name();
+            };
+        }
+    }
+
+    /**
+     * Totals over some cells
+     *
+     * @param count            number of reactions
+     * @param weight           total population weight of the participants who reacted
+     * @param scoreSum         sum of scores
+     * @param weightedScoreSum sum of scores times weights
+     */
+    public record Aggregate(
+            long count,
+            double weight,
+            double scoreSum,
+            double weightedScoreSum
+    ) {
+
+        public static final Aggregate EMPTY = new Aggregate(0, 0.0, 0.0, 0.0);
+
+        Aggregate plus(Aggregate that) {
+            return new Aggregate(
+                    count + that.count,
+                    weight + that.weight,
+                    scoreSum + that.scoreSum,
+                    weightedScoreSum + that.weightedScoreSum);
+        }
+
+        public double mean() {
+            return count > 0 ? scoreSum / count : 0.0;
+        }
+
+        public double weightedMean() {
+            return weight > 0 ? weightedScoreSum / weight : mean();
+        }
+    }
+
+    private final Map<Cell, Aggregate> cells = new HashMap<>();
+
+    public synchronized void add(Model.SpecificReaction reaction, double weight) {
+        var presentation = reaction.participantMessagePresentation();
+        var scale = reaction.reaction().rating().scale();
+        var cell = new Cell(
+                presentation.messageVariant().wording().trim(),
+                presentation.participant().name(),
+                Model.Strata.MODEL.of(presentation.participant()),
+                scale);
+        cells.merge(cell, new Aggregate(1, weight, scale.getValue(), scale.getValue() * weight), Aggregate::plus);
+    }
+
+    /**
+     * All cells
+     */
+    public Slice all() {
+        return new Slice(List.of());
+    }
+
+    /**
+     * Cells whose value along a dimension matches
+     */
+    public Slice where(Dimension dimension, Predicate<String> matches) {
+        return all().where(dimension, matches);
+    }
+
+    public Slice where(Dimension dimension, String value) {
+        return all().where(dimension, value);
+    }
+
+    /**
+     * Cells matching all of a number of filters. Immutable
+     */
+    public final class Slice {
+
+        private final List<Predicate<Cell>> filters;
+
+        private Slice(List<Predicate<Cell>> filters) {
+            this.filters = filters;
+        }
+
+        public Slice where(Dimension dimension, Predicate<String> matches) {
+            var narrower = new ArrayList<>(filters);
+            narrower.add(cell -> matches.test(cell.get(dimension)));
+            return new Slice(List.copyOf(narrower));
+        }
+
+        public Slice where(Dimension dimension, String value) {
+            return where(dimension, v -> Objects.equals(v, value));
+        }
+
+        private boolean contains(Cell cell) {
+            for (var filter : filters) {
+                if (!filter.test(cell)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Totals over the slice
+         */
+        public Aggregate total() {
+            synchronized (ReactionCube.this) {
+                var total = Aggregate.EMPTY;
+                for (var cell : cells.entrySet()) {
+                    if (contains(cell.getKey())) {
+                        total = total.plus(cell.getValue());
+                    }
+                }
+                return total;
+            }
+        }
+
+        /**
+         * Totals over the slice for each value along a dimension, ordered by value
+         */
+        public Map<String, Aggregate> rollup(Dimension dimension) {
+            synchronized (ReactionCube.this) {
+                var rollup = new TreeMap<String, Aggregate>();
+                for (var cell : cells.entrySet()) {
+                    if (contains(cell.getKey())) {
+                        rollup.merge(cell.getKey().get(dimension), cell.getValue(), Aggregate::plus);
+                    }
+                }
+                return rollup;
+            }
+        }
+
+        /**
+         * Totals over the slice for each combination of values along two dimensions
+         */
+        public Map<String, Map<String, Aggregate>> crossTab(Dimension rows, Dimension columns) {
+            synchronized (ReactionCube.this) {
+                var crossTab = new TreeMap<String, Map<String, Aggregate>>();
+                for (var cell : cells.entrySet()) {
+                    if (contains(cell.getKey())) {
+                        crossTab.computeIfAbsent(cell.getKey().get(rows), k -> new TreeMap<>())
+                                .merge(cell.getKey().get(columns), cell.getValue(), Aggregate::plus);
+                    }
+                }
+                return crossTab;
+            }
+        }
+    }
+}
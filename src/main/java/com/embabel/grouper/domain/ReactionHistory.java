@@ -0,0 +1,50 @@
+package com.embabel.grouper.domain;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reactions from past runs, indexed by message, group and participant,
+ * so a new run can start from what the group has already said about a wording
+ * rather than paying to ask again.
+ */
+public interface ReactionHistory {
+
+    ReactionHistory NONE = (message, group) -> Priors.NONE;
+
+    /**
+     * A past reaction
+     */
+    record Prior(Model.Reaction reaction, Instant timestamp) {
+    }
+
+    /**
+     * Past reactions of one group to one message
+     */
+    interface Priors {
+
+        Priors NONE = (participantId, wording) -> List.of();
+
+        /**
+         * Past reactions of this participant to this wording, or a near-identical one, oldest first
+         */
+        List<Prior> reactionsOf(String participantId, String wording);
+    }
+
+    /**
+     * Past reactions of members of this group to wordings of this message
+     */
+    Priors priors(String message, String group);
+
+    /**
+     * Key under which near-identical wordings, differing only in case, punctuation or spacing, coincide
+     */
+    static String normalize(String wording) {
+        return wording
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[\\p{Punct}\\p{IsPunctuation}]", "")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+}
@@ -0,0 +1,63 @@
+package com.embabel.grouper.domain;
+
+import java.util.List;
+
+/**
+ * When to ask a participant for another reaction to the same presentation.
+ * One reaction at a non-zero temperature is noisy, but asking everyone several times is expensive,
+ * so we only resample where it could change the ranking: where a participant's reactions disagree,
+ * or where the variant is close to the score we're aiming for.
+ *
+ * @param maxSamples         most reactions to take from one participant to one variant. 1 means never resample
+ * @param agreementTolerance largest spread of scores, on the 0-1 scale, we treat as agreement.
+ *                           0.25 is one step on the Likert scale
+ * @param decisionMargin     how close a variant's decision score must be to the target to resample it
+ */
+public record ResamplingPolicy(
+        int maxSamples,
+        double agreementTolerance,
+        double decisionMargin
+) {
+
+    public static final ResamplingPolicy DEFAULT = new ResamplingPolicy(0, 0.0, 0.0);
+
+    public ResamplingPolicy {
+        if (maxSamples <= 0) {
+            maxSamples = 1;
+        }
+        if (agreementTolerance <= 0.0) {
+            agreementTolerance = 0.25;
+        }
+        if (decisionMargin <= 0.0) {
+            decisionMargin = 0.05;
+        }
+    }
+
+    /**
+     * Whether to take another sample
+     *
+     * @param samples       reactions to this presentation so far
+     * @param decisionScore the variant's current decision score
+     * @param target        the decision score we're aiming for
+     */
+    public boolean needsAnother(List<Model.SpecificReaction> samples, double decisionScore, double target) {
+        if (samples.isEmpty()) {
+            return true;
+        }
+        if (samples.size() >= maxSamples) {
+            return false;
+        }
+        if (samples.size() == 1) {
+            // Can't tell whether one reaction is typical, so only check it if it matters
+            return Math.abs(decisionScore - target) < decisionMargin;
+        }
+        byte min = Byte.MAX_VALUE;
+        byte max = Byte.MIN_VALUE;
+        for (var sample : samples) {
+            var code = sample.reaction().rating().code();
+            min = (byte) Math.min(min, code);
+            max = (byte) Math.max(max, code);
+        }
+        return LikertRating.score(max) - LikertRating.score(min) > agreementTolerance;
+    }
+}
@@ -0,0 +1,212 @@
+package com.embabel.grouper.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Where a run's presentations spent their time, for tuning concurrency from real data.
+ * Each presentation's time is split into queued, waiting for LLM capacity, and executing, calling the model.
+ * Effective parallelism is executing time divided by the time at least one presentation was in progress,
+ * so it excludes time spent between presentation rounds.
+ * Coordinator runs leave the profile empty, as workers make the presentations.
+ */
+public class RunProfile {
+
+    /**
+     * Executing time percentiles of one model
+     */
+    public record ModelLatency(
+            String model,
+            long presentations,
+            double p50Millis,
+            double p95Millis,
+            double p99Millis,
+            double meanQueuedMillis
+    ) {
+    }
+
+    /**
+     * A persona or wording and its mean executing time
+     */
+    public record Slowest(String name, double meanMillis, long presentations) {
+    }
+
+    public record Summary(
+            long presentations,
+            double queuedSeconds,
+            double executingSeconds,
+            double activeSeconds,
+            double effectiveParallelism,
+            int maxConcurrency,
+            double tokensPerReaction,
+            List<ModelLatency> models,
+            List<Slowest> slowestPersonas,
+            List<Slowest> slowestWordings
+    ) {
+
+        @Override
+        public String toString() {
+            var sb = new StringBuilder();
+            sb.append("%d presentations: %.1fs queued, %.1fs executing over %.1fs active%n".formatted(
+                    presentations, queuedSeconds, executingSeconds, activeSeconds));
+            sb.append("Effective parallelism %.1f of max concurrency %d. ~%.0f prompt tokens per reaction%n".formatted(
+                    effectiveParallelism, maxConcurrency, tokensPerReaction));
+            for (var model : models) {
+                sb.append("  %s: %d presentations, p50 %.0fms, p95 %.0fms, p99 %.0fms, mean queued %.0fms%n".formatted(
+                        model.model(), model.presentations(), model.p50Millis(), model.p95Millis(), model.p99Millis(),
+                        model.meanQueuedMillis()));
+            }
+            sb.append("Slowest personas: ").append(render(slowestPersonas)).append("\n");
+            sb.append("Slowest wordings: ").append(render(slowestWordings)).append("\n");
+            return sb.toString();
+        }
+
+        private static String render(List<Slowest> slowest) {
+            return slowest.stream()
+                    .map(s -> "%s (%.0fms)".formatted(s.name(), s.meanMillis()))
+                    .collect(Collectors.joining(", "));
+        }
+    }
+
+    private record Timing(
+            String model,
+            String persona,
+            String wording,
+            long queuedNanos,
+            long executingNanos,
+            long promptTokens,
+            long startNanos,
+            long endNanos
+    ) {
+    }
+
+    private static final int SLOWEST = 3;
+
+    private final int maxConcurrency;
+
+    private final List<Timing> timings = new ArrayList<>();
+
+    public RunProfile(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Record a presentation that has just completed
+     */
+    public void record(Model.ParticipantMessagePresentation presentation, long queuedNanos, long executingNanos, long promptTokens) {
+        var end = System.nanoTime();
+        record(presentation, queuedNanos, executingNanos, promptTokens, end - executingNanos, end);
+    }
+
+    /**
+     * Record a presentation executing between these times, from {@link System#nanoTime()}
+     */
+    public synchronized void record(
+            Model.ParticipantMessagePresentation presentation,
+            long queuedNanos,
+            long executingNanos,
+            long promptTokens,
+            long startNanos,
+            long endNanos) {
+        timings.add(new Timing(
+                Model.Strata.MODEL.of(presentation.participant()),
+                presentation.participant().name(),
+                presentation.messageVariant().wording(),
+                queuedNanos,
+                executingNanos,
+                promptTokens,
+                startNanos,
+                endNanos));
+    }
+
+    public synchronized Summary summary() {
+        long queued = timings.stream().mapToLong(Timing::queuedNanos).sum();
+        long executing = timings.stream().mapToLong(Timing::executingNanos).sum();
+        long active = activeNanos();
+        var models = timings.stream()
+                .collect(Collectors.groupingBy(Timing::model, TreeMap::new, Collectors.toList()))
+                .entrySet().stream()
+                .map(e -> {
+                    var millis = e.getValue().stream()
+                            .mapToDouble(t -> t.executingNanos() / 1e6)
+                            .sorted()
+                            .toArray();
+                    return new ModelLatency(
+                            e.getKey(),
+                            millis.length,
+                            percentile(millis, 0.50),
+                            percentile(millis, 0.95),
+                            percentile(millis, 0.99),
+                            e.getValue().stream().mapToDouble(t -> t.queuedNanos() / 1e6).average().orElse(0.0));
+                })
+                .toList();
+        return new Summary(
+                timings.size(),
+                queued / 1e9,
+                executing / 1e9,
+                active / 1e9,
+                active > 0 ? (double) executing / active : 0.0,
+                maxConcurrency,
+                timings.stream().mapToLong(Timing::promptTokens).average().orElse(0.0),
+                models,
+                slowest(Timing::persona),
+                slowest(Timing::wording));
+    }
+
+    /**
+     * Nearest rank percentile of sorted values
+     */
+    static double percentile(double[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    /**
+     * Time at least one presentation was executing
+     */
+    private long activeNanos() {
+        var sorted = timings.stream()
+                .sorted(Comparator.comparingLong(Timing::startNanos))
+                .toList();
+        long active = 0;
+        long start = 0;
+        long end = Long.MIN_VALUE;
+        for (var timing : sorted) {
+            if (timing.startNanos() > end) {
+                if (end != Long.MIN_VALUE) {
+                    active += end - start;
+                }
+                start = timing.startNanos();
+                end = timing.endNanos();
+            } else {
+                end = Math.max(end, timing.endNanos());
+            }
+        }
+        return end == Long.MIN_VALUE ? 0 : active + end - start;
+    }
+
+    private List<Slowest> slowest(Function<Timing, String> key) {
+        Map<String, List<Timing>> grouped = timings.stream().collect(Collectors.groupingBy(key));
+        return grouped.entrySet().stream()
+                .map(e -> new Slowest(
+                        e.getKey(),
+                        e.getValue().stream().mapToDouble(t -> t.executingNanos() / 1e6).average().orElse(0.0),
+                        e.getValue().size()))
+                .sorted(Comparator.comparingDouble(Slowest::meanMillis).reversed())
+                .limit(SLOWEST)
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        return summary().toString();
+    }
+}
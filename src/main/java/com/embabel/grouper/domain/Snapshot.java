@@ -0,0 +1,159 @@
+package com.embabel.grouper.domain;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * State of an evolution after an iteration: the best variants, the findings and every reaction so far.
+ * A new run can fork from a snapshot, perhaps with different creatives or another group,
+ * rather than repeating the iterations that led to it.
+ * Wordings and participants are stored by text and id, so a snapshot doesn't depend on the message or group definitions.
+ * To keep snapshots small as reactions accumulate, a snapshot may hold only the reactions since the previous one
+ * and name it, so restoring needs every snapshot in the chain.
+ *
+ * @param version      format version
+ * @param run          id of the run the snapshot was taken from
+ * @param message      name of the message
+ * @param group        name of the group
+ * @param iteration    iterations completed
+ * @param created      when the snapshot was taken
+ * @param bestVariants best and Pareto optimal variants, best first
+ * @param findings     findings so far, oldest first
+ * @param reactions    reactions since the previous snapshot, or every reaction so far if there is none
+ * @param previous     file name of the previous snapshot of the run, in the same directory, or null
+ */
+public record Snapshot(
+        int version,
+        String run,
+        String message,
+        String group,
+        int iteration,
+        Instant created,
+        List<Score> bestVariants,
+        List<String> findings,
+        List<Reaction> reactions,
+        String previous
+) {
+
+    public static final int VERSION = 2;
+
+    public record Score(
+            String wording,
+            double averageScore,
+            double normalizedScore,
+            long count,
+            double standardError,
+            double variance,
+            double lowerBound,
+            double upperBound,
+            double modelDisagreement,
+            double worstSegmentScore,
+            double backfireRate
+    ) {
+
+        static Score of(Model.MessageVariantScore score) {
+            return new Score(score.messageVariant().wording(), score.averageScore(), score.normalizedScore(),
+                    score.count(), score.standardError(), score.variance(), score.lowerBound(), score.upperBound(),
+                    score.modelDisagreement(), score.worstSegmentScore(), score.backfireRate());
+        }
+
+        Model.MessageVariantScore toScore(Model.Message message) {
+            return new Model.MessageVariantScore(new Model.MessageVariant(message, wording), averageScore,
+                    normalizedScore, count, standardError, variance, lowerBound, upperBound, modelDisagreement,
+                    worstSegmentScore, backfireRate);
+        }
+    }
+
+    public record Reaction(String participantId, String wording, Model.Reaction reaction, Instant timestamp) {
+    }
+
+    public static Snapshot of(String run, String message, String group, int iteration, Model.BestScoringVariants bestScoringVariants) {
+        return of(run, message, group, iteration, bestScoringVariants, bestScoringVariants.ledger().reactions(), null);
+    }
+
+    /**
+     * @param reactions reactions since the previous snapshot
+     * @param previous  file name of the previous snapshot, or null if the reactions are all of them
+     */
+    public static Snapshot of(
+            String run,
+            String message,
+            String group,
+            int iteration,
+            Model.BestScoringVariants bestScoringVariants,
+            List<Model.SpecificReaction> reactions,
+            String previous) {
+        var best = new LinkedHashMap<String, Model.MessageVariantScore>();
+        Stream.concat(bestScoringVariants.bestVariants().stream(), bestScoringVariants.paretoFront().stream())
+                .forEach(score -> best.putIfAbsent(score.messageVariant().wording(), score));
+        return new Snapshot(
+                VERSION,
+                run,
+                message,
+                group,
+                iteration,
+                Instant.now(),
+                best.values().stream().map(Score::of).toList(),
+                bestScoringVariants.findings(),
+                reactions.stream()
+                        .map(sp -> new Reaction(
+                                sp.participantMessagePresentation().participant().id(),
+                                sp.participantMessagePresentation().messageVariant().wording(),
+                                sp.reaction(),
+                                sp.timestamp()))
+                        .toList(),
+                previous);
+    }
+
+    /**
+     * This snapshot with the reactions of the one before it in the chain
+     */
+    public Snapshot after(Snapshot earlier) {
+        var all = new ArrayList<>(earlier.reactions);
+        all.addAll(reactions);
+        return new Snapshot(version, run, message, group, iteration, created, bestVariants, findings, all, earlier.previous);
+    }
+
+    /**
+     * Wordings of the best variants, best first
+     */
+    public List<String> bestWordings() {
+        return bestVariants.stream().map(Score::wording).toList();
+    }
+
+    /**
+     * Restore this snapshot, with its chain already followed, into new best scoring variants.
+     * Reactions of participants not in the given group are left out of the ledger,
+     * though they still count in restored scores.
+     */
+    public void restoreInto(
+            Model.BestScoringVariants bestScoringVariants,
+            Model.Message message,
+            Collection<? extends Model.Participant> participants) {
+        if (version > VERSION) {
+            throw new IllegalArgumentException("Snapshot version %d is newer than supported version %d".formatted(version, VERSION));
+        }
+        if (previous != null) {
+            throw new IllegalArgumentException("Snapshot holds only the reactions since " + previous + ", so must be read with its chain");
+        }
+        bestVariants.forEach(score -> bestScoringVariants.offer(score.toScore(message)));
+        findings.forEach(bestScoringVariants::addFinding);
+        var participantsById = participants.stream()
+                .collect(Collectors.toMap(Model.Participant::id, Function.identity(), (a, b) -> a));
+        for (var reaction : reactions) {
+            var participant = participantsById.get(reaction.participantId());
+            if (participant != null) {
+                bestScoringVariants.ledger().record(new Model.SpecificReaction(
+                        new Model.ParticipantMessagePresentation(participant, new Model.MessageVariant(message, reaction.wording())),
+                        reaction.reaction(),
+                        reaction.timestamp()));
+            }
+        }
+    }
+}
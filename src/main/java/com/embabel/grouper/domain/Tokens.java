@@ -0,0 +1,25 @@
+package com.embabel.grouper.domain;
+
+/**
+ * Cheap token estimates for keeping prompts within budget.
+ * Roughly 4 characters per token for English text.
+ */
+public final class Tokens {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private Tokens() {
+    }
+
+    public static int estimate(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Truncate text to approximately the given number of tokens
+     */
+    public static String truncate(String text, int maxTokens) {
+        int maxChars = maxTokens * CHARS_PER_TOKEN;
+        return text.length() <= maxChars ? text : text.substring(0, Math.max(0, maxChars - 3)) + "...";
+    }
+}
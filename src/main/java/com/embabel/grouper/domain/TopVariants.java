@@ -0,0 +1,110 @@
+package com.embabel.grouper.domain;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bounded set of the best scoring variants, one per wording.
+ * Kept ordered both by decision score and by normalized score,
+ * so offering a score and reading either ranking costs O(log K) rather than a full sort.
+ * Variants pushed out of the top K are kept in a compact archive.
+ */
+public class TopVariants {
+
+    /**
+     * What we remember about a variant that fell out of the top K
+     *
+     * @param wording         the variant's wording
+     * @param decisionScore   decision score when evicted
+     * @param normalizedScore normalized score when evicted
+     * @param count           number of reactions
+     */
+    public record Archived(
+            String wording,
+            double decisionScore,
+            double normalizedScore,
+            long count
+    ) {
+    }
+
+    private final int capacity;
+
+    private final ToDoubleFunction<Model.MessageVariantScore> decisionScore;
+
+    private final Map<String, Model.MessageVariantScore> byWording = new HashMap<>();
+
+    private final TreeSet<Model.MessageVariantScore> byDecisionScore;
+
+    private final TreeSet<Model.MessageVariantScore> byNormalizedScore;
+
+    private final Map<String, Archived> archive = new LinkedHashMap<>();
+
+    public TopVariants(int capacity, ToDoubleFunction<Model.MessageVariantScore> decisionScore) {
+        this.capacity = capacity;
+        this.decisionScore = decisionScore;
+        this.byDecisionScore = new TreeSet<>(descending(decisionScore));
+        this.byNormalizedScore = new TreeSet<>(descending(Model.MessageVariantScore::normalizedScore));
+    }
+
+    /**
+     * Highest first, ties broken by wording so distinct wordings never collide
+     */
+    private static Comparator<Model.MessageVariantScore> descending(ToDoubleFunction<Model.MessageVariantScore> score) {
+        return Comparator.comparingDouble(score).reversed()
+                .thenComparing(s -> key(s.messageVariant()));
+    }
+
+    private static String key(Model.MessageVariant messageVariant) {
+        return messageVariant.wording().trim();
+    }
+
+    /**
+     * Add a score, replacing any earlier score for the same wording.
+     * If that leaves too many, the lowest by decision score is archived.
+     */
+    public synchronized void offer(Model.MessageVariantScore score) {
+        var key = key(score.messageVariant());
+        var previous = byWording.put(key, score);
+        if (previous != null) {
+            byDecisionScore.remove(previous);
+            byNormalizedScore.remove(previous);
+        }
+        archive.remove(key);
+        byDecisionScore.add(score);
+        byNormalizedScore.add(score);
+        if (byDecisionScore.size() > capacity) {
+            var evicted = byDecisionScore.pollLast();
+            byNormalizedScore.remove(evicted);
+            byWording.remove(key(evicted.messageVariant()));
+            archive.put(key(evicted.messageVariant()), new Archived(
+                    evicted.messageVariant().wording(),
+                    decisionScore.applyAsDouble(evicted),
+                    evicted.normalizedScore(),
+                    evicted.count()));
+        }
+    }
+
+    public synchronized List<Model.MessageVariantScore> byDecisionScore() {
+        return List.copyOf(byDecisionScore);
+    }
+
+    public synchronized List<Model.MessageVariantScore> byNormalizedScore() {
+        return List.copyOf(byNormalizedScore);
+    }
+
+    /**
+     * Variants that fell out of the top K, in the order they were evicted
+     */
+    public synchronized List<Archived> archive() {
+        return List.copyOf(archive.values());
+    }
+
+    public synchronized int size() {
+        return byWording.size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.embabel.grouper.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Streaming statistics for one message variant.
+ * Updated in a single pass as reactions arrive, using weighted Welford updates,
+ * so scores never require rescanning reactions.
+ * The unit is the participant: if a participant reacted several times,
+ * their mean score is replaced rather than each sample being counted.
+ */
+final class VariantScoreAccumulator {
+
+    /**
+     * Largest possible variance of a score between 0 and 1
+     */
+    static final double MAX_SCORE_VARIANCE = 0.25;
+
+    /**
+     * z value for a 95% interval
+     */
+    static final double Z = 1.96;
+
+    private final Model.MessageVariant messageVariant;
+
+    private long count;
+
+    private double scoreSum;
+
+    private final WeightedMoments overall = new WeightedMoments();
+
+    private final WeightedMoments backfire = new WeightedMoments();
+
+    private final Map<String, WeightedMoments> strata = new HashMap<>();
+
+    private final Map<String, WeightedMoments> models = new HashMap<>();
+
+    VariantScoreAccumulator(Model.MessageVariant messageVariant) {
+        this.messageVariant = messageVariant;
+    }
+
+    /**
+     * @param score        the participant's mean score
+     * @param backfireRate share of the participant's reactions that strongly disagreed
+     */
+    void add(double score, double backfireRate, double weight, String stratum, String model) {
+        count++;
+        scoreSum += score;
+        overall.add(score, weight);
+        backfire.add(backfireRate, weight);
+        strata.computeIfAbsent(stratum, k -> new WeightedMoments()).add(score, weight);
+        models.computeIfAbsent(model, k -> new WeightedMoments()).add(score, 1.0);
+    }
+
+    /**
+     * Undo an earlier add, before adding the participant's updated scores
+     */
+    void remove(double score, double backfireRate, double weight, String stratum, String model) {
+        count--;
+        scoreSum -= score;
+        overall.remove(score, weight);
+        backfire.remove(backfireRate, weight);
+        strata.get(stratum).remove(score, weight);
+        models.get(model).remove(score, 1.0);
+    }
+
+    /**
+     * Design-weighted score: a stratified estimate of the whole focus group's score,
+     * with a standard error reflecting how much of each stratum was sampled,
+     * and a Wilson interval on the effective sample size.
+     * As Likert scores lie between 0 and 1, their variance can't exceed that of a proportion,
+     * so the Wilson interval is conservative.
+     *
+     * @param stratumWeight share of the population in each stratum
+     * @param stratumSize   number of participants in each stratum of the population
+     */
+    Model.MessageVariantScore score(ToDoubleFunction<String> stratumWeight, ToLongFunction<String> stratumSize) {
+        if (count == 0) {
+            return new Model.MessageVariantScore(messageVariant, 0.0, 0.0, 0);
+        }
+        double average = scoreSum / count;
+
+        double totalStratumWeight = strata.keySet().stream()
+                .mapToDouble(stratumWeight)
+                .sum();
+
+        double estimate = 0.0;
+        double variance = 0.0;
+        for (var stratum : strata.entrySet()) {
+            var moments = stratum.getValue();
+            double share = totalStratumWeight > 0 ?
+                    stratumWeight.applyAsDouble(stratum.getKey()) / totalStratumWeight :
+                    (double) moments.n / count;
+            estimate += share * moments.mean;
+
+            long n = moments.n;
+            // With a single reaction we can't estimate spread, so assume the worst a 0-1 score can do
+            double s2 = n > 1 ? moments.variance() * n / (n - 1) : MAX_SCORE_VARIANCE;
+            double finitePopulationCorrection = Math.max(0.0, 1.0 - (double) n / stratumSize.applyAsLong(stratum.getKey()));
+            variance += share * share * finitePopulationCorrection * s2 / n;
+        }
+        double standardError = Math.sqrt(variance);
+
+        // Wilson interval, widened to cover sampling error if participants were sampled
+        double n = overall.effectiveSize();
+        double z2 = Z * Z;
+        double denominator = 1 + z2 / n;
+        double centre = (estimate + z2 / (2 * n)) / denominator;
+        double halfWidth = Z * Math.sqrt(estimate * (1 - estimate) / n + z2 / (4 * n * n)) / denominator;
+        double lowerBound = clamp(Math.min(centre - halfWidth, estimate - Z * standardError));
+        double upperBound = clamp(Math.max(centre + halfWidth, estimate + Z * standardError));
+
+        double modelDisagreement = models.values().stream().mapToDouble(m -> m.mean).max().orElse(0.0) -
+                models.values().stream().mapToDouble(m -> m.mean).min().orElse(0.0);
+
+        // Ignore strata with no weight in the population
+        double worstSegmentScore = strata.values().stream()
+                .filter(m -> m.weightSum > 0)
+                .mapToDouble(m -> m.mean)
+                .min()
+                .orElse(estimate);
+
+        return new Model.MessageVariantScore(
+                messageVariant,
+                average,
+                estimate,
+                count,
+                standardError,
+                overall.variance(),
+                lowerBound,
+                upperBound,
+                modelDisagreement,
+                worstSegmentScore,
+                backfire.mean);
+    }
+
+    private static double clamp(double score) {
+        return Math.max(0.0, Math.min(1.0, score));
+    }
+
+    /**
+     * Weighted mean and variance via Welford's online algorithm
+     */
+    private static final class WeightedMoments {
+
+        private long n;
+
+        private double weightSum;
+
+        private double weightSquareSum;
+
+        private double mean;
+
+        private double m2;
+
+        void add(double x, double weight) {
+            n++;
+            if (weight <= 0) {
+                return;
+            }
+            weightSum += weight;
+            weightSquareSum += weight * weight;
+            double delta = x - mean;
+            mean += weight / weightSum * delta;
+            m2 += weight * delta * (x - mean);
+        }
+
+        void remove(double x, double weight) {
+            n--;
+            if (weight <= 0) {
+                return;
+            }
+            double remaining = weightSum - weight;
+            if (remaining <= 1e-12) {
+                weightSum = weightSquareSum = mean = m2 = 0.0;
+                return;
+            }
+            double oldMean = mean;
+            mean = (mean * weightSum - weight * x) / remaining;
+            m2 = Math.max(0.0, m2 - weight * (x - mean) * (x - oldMean));
+            weightSum = remaining;
+            weightSquareSum -= weight * weight;
+        }
+
+        double variance() {
+            return weightSum > 0 ? m2 / weightSum : 0.0;
+        }
+
+        /**
+         * Kish effective sample size
+         */
+        double effectiveSize() {
+            return weightSquareSum > 0 ? weightSum * weightSum / weightSquareSum : n;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.embabel.grouper.domain;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Local index for finding similar wordings, with no external embedding service.
+ * Each wording is embedded by hashing its character trigrams and words into a fixed number of signed dimensions,
+ * quantized to bytes, so 100k wordings take about 25MB.
+ * Similarity is the cosine of the angle between embeddings, so it reflects shared spelling rather than meaning:
+ * it finds rewordings, not paraphrases.
+ * Nearest neighbours are found through a hierarchical navigable small world graph,
+ * so inserts and queries take milliseconds however many wordings are indexed.
+ * Wordings are compared ignoring case, punctuation and spacing.
+ */
+public class WordingIndex {
+
+    /**
+     * Similarity at or above which two wordings are treated as the same
+     */
+    public static final double NEAR_DUPLICATE = 0.9;
+
+    public record Match(String wording, double similarity) {
+    }
+
+    private static final int DIMENSIONS = 256;
+
+    /**
+     * Links per node on upper layers. Layer 0 has twice as many
+     */
+    private static final int M = 12;
+
+    private static final int EF_CONSTRUCTION = 64;
+
+    private static final int EF_SEARCH = 48;
+
+    private static final double LEVEL_MULTIPLIER = 1 / Math.log(M);
+
+    private static final class Node {
+        final String wording;
+        final byte[] vector;
+        final int[][] links;
+        final int[] linkCounts;
+
+        Node(String wording, byte[] vector, int level) {
+            this.wording = wording;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                links[layer] = new int[maxLinks(layer) + 1];
+            }
+        }
+
+        int level() {
+            return links.length - 1;
+        }
+    }
+
+    /**
+     * Node and its similarity to the current query
+     */
+    private record Candidate(int node, double similarity) {
+    }
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Map<String, Integer> byKey = new HashMap<>();
+
+    private final Random random;
+
+    private int entryPoint = -1;
+
+    public WordingIndex() {
+        this(new Random(42));
+    }
+
+    WordingIndex(Random random) {
+        this.random = random;
+    }
+
+    private static int maxLinks(int layer) {
+        return layer == 0 ? 2 * M : M;
+    }
+
+    /**
+     * Add a wording if not already present
+     *
+     * @return whether the wording was added
+     */
+    public synchronized boolean add(String wording) {
+        var key = ReactionHistory.normalize(wording);
+        if (byKey.containsKey(key)) {
+            return false;
+        }
+        int level = (int) (-Math.log(1 - random.nextDouble()) * LEVEL_MULTIPLIER);
+        var node = new Node(wording, embed(key), level);
+        int id = nodes.size();
+        nodes.add(node);
+        byKey.put(key, id);
+        if (entryPoint < 0) {
+            entryPoint = id;
+            return true;
+        }
+
+        int top = nodes.get(entryPoint).level();
+        var entry = new Candidate(entryPoint, similarity(node.vector, nodes.get(entryPoint).vector));
+        for (int layer = top; layer > level; layer--) {
+            entry = greedy(node.vector, entry, layer);
+        }
+        var entries = List.of(entry);
+        for (int layer = Math.min(level, top); layer >= 0; layer--) {
+            var found = search(node.vector, entries, EF_CONSTRUCTION, layer);
+            for (var neighbour : found.subList(0, Math.min(M, found.size()))) {
+                link(id, neighbour.node(), layer);
+                link(neighbour.node(), id, layer);
+            }
+            entries = found;
+        }
+        if (level > top) {
+            entryPoint = id;
+        }
+        return true;
+    }
+
+    /**
+     * Most similar indexed wordings, most similar first
+     */
+    public synchronized List<Match> nearest(String wording, int k) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        var query = embed(ReactionHistory.normalize(wording));
+        var entry = new Candidate(entryPoint, similarity(query, nodes.get(entryPoint).vector));
+        for (int layer = nodes.get(entryPoint).level(); layer > 0; layer--) {
+            entry = greedy(query, entry, layer);
+        }
+        return search(query, List.of(entry), Math.max(EF_SEARCH, k), 0).stream()
+                .limit(k)
+                .map(candidate -> new Match(nodes.get(candidate.node()).wording, candidate.similarity()))
+                .toList();
+    }
+
+    /**
+     * Indexed wordings similar enough to this one to be treated as the same, most similar first
+     */
+    public List<Match> nearDuplicates(String wording, int k) {
+        return nearest(wording, k).stream()
+                .filter(match -> match.similarity() >= NEAR_DUPLICATE)
+                .toList();
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Similarity of two wordings, as the index would measure it
+     */
+    public static double similarity(String a, String b) {
+        return similarity(embed(ReactionHistory.normalize(a)), embed(ReactionHistory.normalize(b)));
+    }
+
+    /**
+     * Move to the most similar neighbour until no neighbour is more similar
+     */
+    private Candidate greedy(byte[] query, Candidate entry, int layer) {
+        var best = entry;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            var node = nodes.get(best.node());
+            for (int i = 0; i < node.linkCounts[layer]; i++) {
+                int neighbour = node.links[layer][i];
+                double similarity = similarity(query, nodes.get(neighbour).vector);
+                if (similarity > best.similarity()) {
+                    best = new Candidate(neighbour, similarity);
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Beam search of one layer
+     *
+     * @return up to ef nodes, most similar first
+     */
+    private List<Candidate> search(byte[] query, List<Candidate> entries, int ef, int layer) {
+        var visited = new BitSet(nodes.size());
+        var frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity).reversed());
+        var results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity));
+        for (var entry : entries) {
+            visited.set(entry.node());
+            frontier.add(entry);
+            results.add(entry);
+        }
+        while (results.size() > ef) {
+            results.poll();
+        }
+        while (!frontier.isEmpty()) {
+            var current = frontier.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) {
+                break;
+            }
+            var node = nodes.get(current.node());
+            for (int i = 0; i < node.linkCounts[layer]; i++) {
+                int neighbour = node.links[layer][i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                var candidate = new Candidate(neighbour, similarity(query, nodes.get(neighbour).vector));
+                if (results.size() < ef || candidate.similarity() > results.peek().similarity()) {
+                    frontier.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        var sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        return sorted;
+    }
+
+    /**
+     * Link from one node to another, dropping the from node's least similar link if it has too many
+     */
+    private void link(int from, int to, int layer) {
+        var node = nodes.get(from);
+        var links = node.links[layer];
+        links[node.linkCounts[layer]++] = to;
+        if (node.linkCounts[layer] <= maxLinks(layer)) {
+            return;
+        }
+        int worst = 0;
+        double worstSimilarity = Double.MAX_VALUE;
+        for (int i = 0; i < node.linkCounts[layer]; i++) {
+            double similarity = similarity(node.vector, nodes.get(links[i]).vector);
+            if (similarity < worstSimilarity) {
+                worstSimilarity = similarity;
+                worst = i;
+            }
+        }
+        links[worst] = links[--node.linkCounts[layer]];
+    }
+
+    /**
+     * Hashed character trigrams and words, normalized to unit length and quantized to bytes
+     */
+    static byte[] embed(String normalized) {
+        var vector = new float[DIMENSIONS];
+        var padded = " " + normalized + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            addFeature(vector, padded.substring(i, i + 3).hashCode());
+        }
+        for (var word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                addFeature(vector, ~word.hashCode());
+            }
+        }
+        double norm = 0;
+        for (var x : vector) {
+            norm += x * x;
+        }
+        norm = Math.sqrt(norm);
+        var quantized = new byte[DIMENSIONS];
+        if (norm == 0) {
+            return quantized;
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            quantized[i] = (byte) Math.round(vector[i] / norm * 127);
+        }
+        return quantized;
+    }
+
+    private static void addFeature(float[] vector, int hash) {
+        // Spread the bits, as short strings hash to nearby values
+        int mixed = hash * 0x9E3779B9;
+        mixed ^= mixed >>> 16;
+        vector[(mixed & 0x7fffffff) % DIMENSIONS] += (mixed & 0x100) == 0 ? 1 : -1;
+    }
+
+    private static double similarity(byte[] a, byte[] b) {
+        int dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot / (127.0 * 127.0);
+    }
+}
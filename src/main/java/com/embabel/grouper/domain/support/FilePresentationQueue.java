@@ -0,0 +1,142 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.grouper.domain.PresentationQueue;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Presentation queue in a directory, so coordinator and workers can run
+ * in separate JVMs on one machine or on a shared file system.
+ * Workers claim tasks by atomically moving them from pending to claimed,
+ * so each task is performed once.
+ */
+public class FilePresentationQueue implements PresentationQueue {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final String SUFFIX = ".json";
+
+    private final Path pending;
+    private final Path claimed;
+    private final Path results;
+
+    public FilePresentationQueue(Path directory) {
+        this.pending = directory.resolve("pending");
+        this.claimed = directory.resolve("claimed");
+        this.results = directory.resolve("results");
+    }
+
+    @Override
+    public void submit(Task task) {
+        write(created(pending).resolve(task.batch() + "_" + task.id() + SUFFIX), task);
+    }
+
+    @Override
+    public Optional<Task> claim() {
+        for (var file : list(pending)) {
+            var target = created(claimed).resolve(file.getFileName());
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                // Record when we claimed it
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return Optional.of(objectMapper.readValue(target.toFile(), Task.class));
+            } catch (NoSuchFileException e) {
+                // Another worker got there first
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to claim " + file, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void complete(Result result) {
+        try {
+            var batchResults = created(results.resolve(result.batch()));
+            write(batchResults.resolve(result.taskId() + SUFFIX), result);
+            Files.deleteIfExists(claimed.resolve(result.batch() + "_" + result.taskId() + SUFFIX));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to complete task " + result.taskId(), e);
+        }
+    }
+
+    @Override
+    public List<Result> takeResults(String batch) {
+        var taken = new ArrayList<Result>();
+        for (var file : list(results.resolve(batch))) {
+            try {
+                taken.add(objectMapper.readValue(file.toFile(), Result.class));
+                Files.delete(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read result " + file, e);
+            }
+        }
+        return taken;
+    }
+
+    @Override
+    public void requeueStale(Duration claimTimeout) {
+        var cutoff = Instant.now().minus(claimTimeout);
+        for (var file : list(claimed)) {
+            try {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.move(file, pending.resolve(file.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (NoSuchFileException e) {
+                // Completed meanwhile
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to requeue " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Directories are created on first use
+     */
+    private static Path created(Path directory) {
+        try {
+            return Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create " + directory, e);
+        }
+    }
+
+    /**
+     * Write via a temporary file so readers never see partial content
+     */
+    private static void write(Path file, Object value) {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), value);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+    }
+
+    private static List<Path> list(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ReactionHistory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reaction history read from files written by {@link JsonlResultExporter}.
+ * The file is indexed once, when constructed. A missing file is an empty history.
+ */
+public class JsonlReactionHistory implements ReactionHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonlReactionHistory.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Message and group, then participant id, then normalized wording
+     */
+    private final Map<String, Map<String, Map<String, List<Prior>>>> index = new HashMap<>();
+
+    public JsonlReactionHistory(Path file) {
+        if (!Files.exists(file)) {
+            logger.info("No reaction history at {}", file);
+            return;
+        }
+        int reactions = 0;
+        try (var lines = Files.lines(file)) {
+            for (var line : (Iterable<String>) lines::iterator) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                var node = objectMapper.readTree(line);
+                if (!"reaction".equals(node.path("type").asText())) {
+                    continue;
+                }
+                var record = objectMapper.treeToValue(node, JsonlResultExporter.ReactionRecord.class);
+                add(record);
+                reactions++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read reaction history from " + file, e);
+        }
+        index.values().forEach(byParticipant -> byParticipant.values().forEach(byWording ->
+                byWording.values().forEach(priors -> priors.sort(Comparator.comparing(Prior::timestamp)))));
+        logger.info("Read {} past reactions for {} message and group combinations from {}",
+                reactions, index.size(), file);
+    }
+
+    private static String key(String message, String group) {
+        return message + "\n" + group;
+    }
+
+    private void add(JsonlResultExporter.ReactionRecord record) {
+        var reaction = new Model.Reaction(
+                record.positives(),
+                record.negatives(),
+                record.quotes() == null ? List.of() : record.quotes(),
+                LikertRating.of(LikertRating.Scale.valueOf(record.rating())));
+        index.computeIfAbsent(key(record.message(), record.group()), k -> new HashMap<>())
+                .computeIfAbsent(record.participantId(), k -> new HashMap<>())
+                .computeIfAbsent(ReactionHistory.normalize(record.wording()), k -> new ArrayList<>())
+                .add(new Prior(reaction, Instant.ofEpochMilli(record.timestamp())));
+    }
+
+    @Override
+    public Priors priors(String message, String group) {
+        var byParticipant = index.get(key(message, group));
+        if (byParticipant == null) {
+            return Priors.NONE;
+        }
+        return (participantId, wording) -> byParticipant
+                .getOrDefault(participantId, Map.of())
+                .getOrDefault(ReactionHistory.normalize(wording), List.of());
+    }
+}
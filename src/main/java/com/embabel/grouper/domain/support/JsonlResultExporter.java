@@ -0,0 +1,227 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.RunProfile;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appends every reaction, variant score and finding of any number of runs to one JSON Lines file
+ * as runs progress, so results can be analysed without parsing reports.
+ * Each line is one record, with a type of reaction, score, finding or profile,
+ * and the run, message, group and iteration it belongs to.
+ * Lines are flushed at the end of each iteration.
+ * If writing fails, for example because the disk is full, the exporter logs the failure and stops exporting,
+ * rather than failing the runs it's exporting.
+ */
+public class JsonlResultExporter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonlResultExporter.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    public record ReactionRecord(
+            String type,
+            String run,
+            String message,
+            String group,
+            int iteration,
+            String wording,
+            String participantId,
+            String participant,
+            String model,
+            String rating,
+            double score,
+            String positives,
+            String negatives,
+            List<String> quotes,
+            long timestamp
+    ) {
+    }
+
+    public record ScoreRecord(
+            String type,
+            String run,
+            String message,
+            String group,
+            int iteration,
+            String wording,
+            double averageScore,
+            double normalizedScore,
+            long count,
+            double standardError,
+            double lowerBound,
+            double upperBound,
+            double modelDisagreement,
+            double worstSegmentScore,
+            double backfireRate
+    ) {
+    }
+
+    public record FindingRecord(
+            String type,
+            String run,
+            String message,
+            String group,
+            int iteration,
+            String finding
+    ) {
+    }
+
+    public record ProfileRecord(
+            String type,
+            String run,
+            String message,
+            String group,
+            RunProfile.Summary profile
+    ) {
+    }
+
+    private final BufferedWriter out;
+
+    private volatile boolean failed;
+
+    public JsonlResultExporter(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.out = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + file, e);
+        }
+    }
+
+    /**
+     * Listener exporting one run
+     */
+    public FocusGroupListener forRun(String run, String message, String group) {
+        return new FocusGroupListener() {
+
+            /**
+             * Reactions arrive before their iteration is reported complete
+             */
+            private final AtomicInteger iteration = new AtomicInteger(1);
+
+            private final AtomicInteger findingsWritten = new AtomicInteger();
+
+            @Override
+            public void onReaction(Model.SpecificReaction specificReaction) {
+                var presentation = specificReaction.participantMessagePresentation();
+                var reaction = specificReaction.reaction();
+                write(new ReactionRecord("reaction", run, message, group, iteration.get(),
+                        presentation.messageVariant().wording(),
+                        presentation.participant().id(),
+                        presentation.participant().name(),
+                        Model.Strata.MODEL.of(presentation.participant()),
+                        reaction.rating().scale().name(),
+                        reaction.rating().score(),
+                        reaction.positives(),
+                        reaction.negatives(),
+                        reaction.quotes(),
+                        specificReaction.timestamp().toEpochMilli()));
+            }
+
+            @Override
+            public void onScores(int iteration, List<Model.MessageVariantScore> scores) {
+                for (var score : scores) {
+                    write(new ScoreRecord("score", run, message, group, iteration,
+                            score.messageVariant().wording(),
+                            score.averageScore(),
+                            score.normalizedScore(),
+                            score.count(),
+                            score.standardError(),
+                            score.lowerBound(),
+                            score.upperBound(),
+                            score.modelDisagreement(),
+                            score.worstSegmentScore(),
+                            score.backfireRate()));
+                }
+            }
+
+            @Override
+            public void onIteration(int iteration, Model.BestScoringVariants bestScoringVariants) {
+                // Findings summarizing the previous iteration were added when evolving positioning
+                writeFindings(iteration - 1, bestScoringVariants);
+                this.iteration.set(iteration + 1);
+                flush();
+            }
+
+            @Override
+            public void onComplete(Model.BestScoringVariants bestScoringVariants) {
+                writeFindings(iteration.get() - 1, bestScoringVariants);
+                write(new ProfileRecord("profile", run, message, group, bestScoringVariants.profile().summary()));
+                flush();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                flush();
+            }
+
+            private void writeFindings(int iteration, Model.BestScoringVariants bestScoringVariants) {
+                var findings = bestScoringVariants.findings();
+                for (int i = findingsWritten.get(); i < findings.size(); i++) {
+                    write(new FindingRecord("finding", run, message, group, iteration, findings.get(i)));
+                }
+                findingsWritten.set(findings.size());
+            }
+        };
+    }
+
+    private void write(Object record) {
+        if (failed) {
+            return;
+        }
+        try {
+            var line = objectMapper.writeValueAsString(record);
+            synchronized (out) {
+                out.write(line);
+                out.newLine();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void flush() {
+        if (failed) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            logger.error("Failed to export results: no more will be exported", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            out.close();
+        }
+    }
+}
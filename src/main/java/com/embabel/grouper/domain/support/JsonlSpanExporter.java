@@ -0,0 +1,91 @@
+package com.embabel.grouper.domain.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends finished spans to a JSON Lines file, one span per line,
+ * for finding bottlenecks without running a tracing backend.
+ * Durations are in milliseconds, and parents are identified by span id.
+ */
+public class JsonlSpanExporter implements SpanExporter {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public record SpanRecord(
+            String traceId,
+            String spanId,
+            String parentSpanId,
+            String name,
+            long startEpochMillis,
+            double durationMillis,
+            String status,
+            Map<String, Object> attributes
+    ) {
+    }
+
+    private final BufferedWriter out;
+
+    public JsonlSpanExporter(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.out = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            for (var span : spans) {
+                var attributes = new LinkedHashMap<String, Object>();
+                span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+                out.write(objectMapper.writeValueAsString(new SpanRecord(
+                        span.getTraceId(),
+                        span.getSpanId(),
+                        span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                        span.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(span.getStartEpochNanos()),
+                        (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0,
+                        span.getStatus().getStatusCode().name(),
+                        attributes)));
+                out.newLine();
+            }
+            out.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            out.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.Model;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Participant reconstructed by a worker from a queued task.
+ * Its contribution was rendered by the coordinator.
+ */
+public record RemoteParticipant(
+        String id,
+        String name,
+        LlmOptions llm,
+        String contribution
+) implements Model.Participant {
+
+    @NotNull
+    @Override
+    public String contribution() {
+        return contribution;
+    }
+}
@@ -0,0 +1,143 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.Snapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzipped JSON {@link Snapshot} of each run after every iteration,
+ * one directory per run and one file per iteration, so any iteration can be resumed or forked.
+ * Each file holds only the reactions since the one before, so the run's snapshots don't grow quadratically;
+ * {@link #read} follows the chain back to restore them all. If a snapshot can't be written,
+ * the next one starts a new chain with every reaction.
+ * Files are written to a temporary file then moved, so a crash never leaves a partial snapshot.
+ * Snapshots are taken on the agent thread but serialized and written in the background, in order,
+ * so runs don't wait on the disk. If writing fails, the failure is logged and the run continues.
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Path directory;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("snapshot-writer").factory());
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Listener snapshotting one run
+     */
+    public FocusGroupListener forRun(String run, String message, String group) {
+        var runDirectory = directory.resolve("%s-%s-%s".formatted(message, group, run));
+        return new FocusGroupListener() {
+
+            private volatile int iteration;
+
+            // Reactions in snapshots already taken, and the file of the last one
+            private int written;
+
+            private String previous;
+
+            // Set by the writer if a snapshot in the chain couldn't be written
+            private volatile boolean broken;
+
+            @Override
+            public void onIteration(int iteration, Model.BestScoringVariants bestScoringVariants) {
+                this.iteration = iteration;
+                snapshot("iteration-%d.json.gz".formatted(iteration), bestScoringVariants);
+            }
+
+            @Override
+            public void onComplete(Model.BestScoringVariants bestScoringVariants) {
+                // Includes findings on the last iteration, which are added after it's reported
+                snapshot("final.json.gz", bestScoringVariants);
+            }
+
+            private synchronized void snapshot(String name, Model.BestScoringVariants bestScoringVariants) {
+                if (broken) {
+                    broken = false;
+                    written = 0;
+                    previous = null;
+                }
+                var reactions = bestScoringVariants.ledger().reactionsSince(written);
+                var snapshot = Snapshot.of(run, message, group, iteration, bestScoringVariants, reactions, previous);
+                written += reactions.size();
+                previous = name;
+                writer.execute(() -> {
+                    if (!writeNow(runDirectory.resolve(name), snapshot)) {
+                        broken = true;
+                    }
+                });
+            }
+        };
+    }
+
+    private static boolean writeNow(Path file, Snapshot snapshot) {
+        try {
+            Files.createDirectories(file.getParent());
+            var temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                objectMapper.writeValue(out, snapshot);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote snapshot of iteration {} to {}", snapshot.iteration(), file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write snapshot {}: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Write any snapshots still pending
+     */
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    /**
+     * Read a snapshot written by any store, with the reactions of every snapshot before it in its chain
+     */
+    public static Snapshot read(Path file) {
+        var snapshot = readFile(file);
+        while (snapshot.previous() != null) {
+            snapshot = snapshot.after(readFile(file.resolveSibling(snapshot.previous())));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Read one snapshot file, without following its chain
+     */
+    static Snapshot readFile(Path file) {
+        try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+            return objectMapper.readValue(in, Snapshot.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read snapshot " + file, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.embabel.grouper.domain.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Names of the YAML files in a data directory
+ */
+final class YmlFiles {
+
+    private static final String SUFFIX = ".yml";
+
+    private YmlFiles() {
+    }
+
+    /**
+     * Base names, without the .yml suffix, matching the glob, in alphabetical order
+     */
+    static List<String> names(Path directory, String glob) {
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> name.substring(0, name.length() - SUFFIX.length()))
+                    .filter(name -> matcher.matches(Path.of(name)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+    }
+}
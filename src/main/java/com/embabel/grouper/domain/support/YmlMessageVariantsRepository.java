@@ -32,4 +32,9 @@ public class YmlMessageVariantsRepository implements MessageVariantsRepository {
             throw new RuntimeException("Failed to load message variants from " + filePath, e);
         }
     }
+
+    @Override
+    public List<String> findNames(String glob) {
+        return YmlFiles.names(java.nio.file.Path.of("data/messages"), glob);
+    }
 }
@@ -44,6 +44,11 @@ public class YmlParticipantRepository implements ParticipantRepository {
         }
     }
 
+    @Override
+    public List<String> findGroups(String glob) {
+        return YmlFiles.names(java.nio.file.Path.of("data/participants"), glob);
+    }
+
     private Model.Participant createParticipant(ParticipantInfo info, LlmOptions llm) {
         return new PromptedParticipant(
                 info.name(),
@@ -0,0 +1,30 @@
+package com.embabel.grouper;
+
+import com.embabel.grouper.agent.CapacityScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FocusGroupControllerTest {
+
+    @Test
+    void testUnknownRunIsNotFound() {
+        var controller = new FocusGroupController(null);
+        assertEquals(HttpStatus.NOT_FOUND, controller.status("missing").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.events("missing").getStatusCode());
+    }
+
+    @Test
+    void testClientsCannotTakeMoreThanTheirShare() {
+        var greedy = new FocusGroupController.RunRequest(
+                "smoking", "teens", "acme", CapacityScheduler.Lane.EXPRESS, 100.0, 5).options();
+        assertNull(greedy.lane());
+        assertEquals(FocusGroupController.MAX_WEIGHT, greedy.weight());
+
+        var modest = new FocusGroupController.RunRequest(
+                "smoking", "teens", "acme", CapacityScheduler.Lane.BULK, 0.5, 5).options();
+        assertEquals(CapacityScheduler.Lane.BULK, modest.lane());
+        assertEquals(0.5, modest.weight());
+    }
+}
@@ -0,0 +1,92 @@
+package com.embabel.grouper;
+
+import com.embabel.grouper.agent.GrouperProperties;
+import com.embabel.grouper.domain.Model;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseRunListenerTest {
+
+    private static final Pattern EVENT = Pattern.compile("id:(\\d+)\\nevent:(\\w+)\\n");
+
+    /**
+     * Emitter keeping the id and name of every event sent, as "id:name"
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter() {
+            super(0L);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().forEach(part -> {
+                var matcher = EVENT.matcher(String.valueOf(part.getData()));
+                if (matcher.find()) {
+                    events.add(matcher.group(1) + ":" + matcher.group(2));
+                }
+            });
+        }
+
+        @Override
+        public void complete() {
+            super.complete();
+            completed.countDown();
+        }
+
+        List<String> awaitEvents() throws InterruptedException {
+            assertTrue(completed.await(10, TimeUnit.SECONDS), "Stream should complete");
+            return events;
+        }
+    }
+
+    private final Model.BestScoringVariants bestScoringVariants =
+            new Model.BestScoringVariants(GrouperProperties.builder().build());
+
+    @Test
+    void testLateSubscriberSeesRunSoFar() throws InterruptedException {
+        var listener = new SseRunListener();
+        var early = new RecordingEmitter();
+        listener.subscribe(early);
+        listener.onProgress(1, 1, 2);
+        listener.onProgress(1, 2, 2);
+        listener.onIteration(1, bestScoringVariants);
+        listener.onComplete(bestScoringVariants);
+
+        var late = new RecordingEmitter();
+        listener.subscribe(late);
+        var expected = List.of("0:progress", "1:progress", "2:snapshot", "3:complete");
+        assertEquals(expected, early.awaitEvents());
+        assertEquals(expected, late.awaitEvents());
+        assertTrue(listener.isDone());
+    }
+
+    @Test
+    void testRetainsOnlyMostRecentEvents() throws InterruptedException {
+        var listener = new SseRunListener();
+        int total = SseRunListener.RETAINED_EVENTS + 5;
+        for (int i = 0; i < total - 1; i++) {
+            listener.onProgress(1, i, total);
+        }
+        listener.onComplete(bestScoringVariants);
+
+        var late = new RecordingEmitter();
+        listener.subscribe(late);
+        var events = late.awaitEvents();
+        assertEquals(SseRunListener.RETAINED_EVENTS, events.size());
+        assertEquals("5:progress", events.getFirst());
+        assertEquals((total - 1) + ":complete", events.getLast());
+    }
+}
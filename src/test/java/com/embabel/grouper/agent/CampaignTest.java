@@ -0,0 +1,98 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.MessageVariantsRepository;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ParticipantRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignTest {
+
+    private static final GrouperProperties PROPERTIES = GrouperProperties.builder().build();
+
+    private final Set<String> started = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Runner that doesn't call models, and fails runs of vaping against adults
+     */
+    private final FocusGroupRunner focusGroupRunner = new FocusGroupRunner(null, null, null, PROPERTIES, null) {
+        @Override
+        public Model.BestScoringVariants run(String message, String group, RunOptions options) {
+            started.add(message + "/" + group);
+            assertEquals(CapacityScheduler.Lane.BULK, options.lane());
+            if (message.equals("vaping") && group.equals("adults")) {
+                throw new IllegalStateException("Model unavailable");
+            }
+            var best = new Model.BestScoringVariants(PROPERTIES);
+            best.addFinding(message + " works on " + group);
+            return best;
+        }
+    };
+
+    private final ParticipantRepository participantRepository = new ParticipantRepository() {
+        @Override
+        public List<Model.Participant> findByGroup(String group) {
+            return List.of();
+        }
+
+        @Override
+        public List<String> findGroups(String glob) {
+            return glob.equals("none") ? List.of() : List.of("adults", "teens");
+        }
+    };
+
+    private final MessageVariantsRepository messageVariantsRepository = new MessageVariantsRepository() {
+        @Override
+        public Model.MessageVariants findByName(String name) {
+            return null;
+        }
+
+        @Override
+        public List<String> findNames(String glob) {
+            return List.of("smoking", "vaping");
+        }
+    };
+
+    private final Campaign campaign = new Campaign(focusGroupRunner, participantRepository, messageVariantsRepository);
+
+    @Test
+    void testRunsEveryMessageAgainstEveryGroupAndCountsFailures(@TempDir Path dir) throws IOException {
+        var output = dir.resolve("campaign.jsonl");
+        var summary = campaign.run("*", "*", 1, output);
+
+        assertEquals(new Campaign.Summary(4, 1, output), summary);
+        assertEquals(Set.of("smoking/adults", "smoking/teens", "vaping/adults", "vaping/teens"), started);
+        var objectMapper = new ObjectMapper();
+        var results = Files.readAllLines(output).stream()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, Campaign.RunResult.class);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+        assertEquals(4, results.size());
+        var failed = results.stream().filter(result -> !result.succeeded()).toList();
+        assertEquals(1, failed.size());
+        assertEquals("vaping", failed.getFirst().message());
+        assertEquals("Model unavailable", failed.getFirst().error());
+        assertTrue(results.stream().anyMatch(result -> result.findings().equals(List.of("smoking works on teens"))));
+    }
+
+    @Test
+    void testGlobMatchingNothingIsRejected(@TempDir Path dir) {
+        assertThrows(IllegalArgumentException.class, () -> campaign.run("*", "none", 1, dir.resolve("campaign.jsonl")));
+        assertTrue(started.isEmpty());
+    }
+}
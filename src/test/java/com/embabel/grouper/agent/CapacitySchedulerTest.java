@@ -0,0 +1,63 @@
+package com.embabel.grouper.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CapacitySchedulerTest {
+
+    private final CapacityScheduler scheduler = new CapacityScheduler(1);
+
+    private final List<String> completed = new CopyOnWriteArrayList<>();
+
+    private Thread submit(String name, String flow, CapacityScheduler.Lane lane) throws InterruptedException {
+        int before = scheduler.waiting("m");
+        var thread = Thread.ofVirtual().start(() ->
+                scheduler.call("m", flow, lane, 1.0, () -> completed.add(name)));
+        while (scheduler.waiting("m") == before) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    @Test
+    void testExpressLaneFirstThenFairAcrossFlows() throws InterruptedException {
+        var running = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Thread.ofVirtual().start(() ->
+                scheduler.call("m", "x", CapacityScheduler.Lane.STANDARD, 1.0, () -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return null;
+                }));
+        running.await();
+
+        var threads = List.of(
+                submit("a1", "a", CapacityScheduler.Lane.STANDARD),
+                submit("a2", "a", CapacityScheduler.Lane.STANDARD),
+                submit("a3", "a", CapacityScheduler.Lane.STANDARD),
+                submit("b1", "b", CapacityScheduler.Lane.STANDARD),
+                submit("e1", "e", CapacityScheduler.Lane.EXPRESS));
+        release.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of("e1", "a1", "b1", "a2", "a3"), completed);
+    }
+
+    @Test
+    void testModelsHaveSeparateCapacity() {
+        var result = scheduler.call("m", "a", CapacityScheduler.Lane.STANDARD, 1.0, () ->
+                scheduler.call("n", "a", CapacityScheduler.Lane.STANDARD, 1.0, () -> "done"));
+        assertEquals("done", result);
+    }
+}
@@ -0,0 +1,56 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.PresentationQueue;
+import com.embabel.grouper.domain.TestParticipant;
+import com.embabel.grouper.domain.support.FilePresentationQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedPresenterTest {
+
+    @Test
+    void testBatchTimesOutWithoutWorkersAndTasksCarryRunScheduling(@TempDir Path dir) {
+        var queue = new FilePresentationQueue(dir);
+        var properties = GrouperProperties.builder()
+                .distribution(new GrouperProperties.Distribution(GrouperProperties.Distribution.Mode.COORDINATOR,
+                        dir.toString(), 1, Duration.ofMillis(10), null, 0, Duration.ofMillis(100)))
+                .build();
+        var presenter = new DistributedPresenter(queue, properties);
+        var handle = new RunHandle("run-1", "smoking", "teens",
+                new RunOptions("acme", CapacityScheduler.Lane.BULK, 2.0, 0), null);
+        var presentation = new Model.ParticipantMessagePresentation(
+                new TestParticipant("Alice", LlmOptions.withModel("m")),
+                new Model.MessageVariant(new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan"), "Smoking stinks"));
+
+        var e = assertThrows(IllegalStateException.class,
+                () -> presenter.present("run-1-1", handle, List.of(presentation), reaction -> fail("No workers")));
+        assertTrue(e.getMessage().contains("timed out"));
+
+        var task = queue.claim().orElseThrow();
+        assertEquals("acme", task.flow());
+        assertEquals("BULK", task.lane());
+        assertEquals(2.0, task.weight());
+    }
+
+    @Test
+    void testWorkerSchedulesAutoSelectedModelsLikeLocalRuns() {
+        var participant = new TestParticipant("Alice", LlmOptions.withAutoLlm());
+        var task = PresentationQueue.Task.of("t1", "run-1-1", "run-1", null, 1.0, new Model.ParticipantMessagePresentation(
+                participant,
+                new Model.MessageVariant(new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan"), "Smoking stinks")));
+        assertNull(task.model());
+
+        var model = PresentationWorker.model(task);
+        assertEquals(Model.Strata.MODEL.of(participant), model);
+        assertEquals("reacted", new CapacityScheduler(1).call(
+                model, task.flow(), CapacityScheduler.Lane.STANDARD, task.weight(), () -> "reacted"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.Objective;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrouperPropertiesTest {
+
+    private final Model.MessageVariant variant = new Model.MessageVariant(
+            new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan"),
+            "First message wording");
+
+    @Test
+    void testDecisionScoreBlendsConfiguredObjectives() {
+        var score = new Model.MessageVariantScore(variant, 0.8, 0.8, 10, 0.0, 0.0, 0.8, 0.8, 0.0, 0.8, 0.5);
+        assertEquals((0.8 * 5.0 + 0.8 * 1.1) / 6.1, GrouperProperties.builder().build().decisionScore(score), 0.001);
+
+        var properties = GrouperProperties.builder()
+                .decisionWeights(Map.of(Objective.WEIGHTED_MEAN, 1.0, Objective.NO_BACKFIRE, 1.0))
+                .build();
+        assertEquals(0.65, properties.decisionScore(score), 0.001);
+    }
+
+    @Test
+    void testBuilderAppliesConfigurationDefaults() {
+        var properties = GrouperProperties.builder().build();
+        assertEquals(Model.Strata.PERSONA, properties.strata());
+        assertEquals(5, properties.maxFindings());
+        assertEquals(GrouperProperties.Cassette.Mode.OFF, properties.cassette().mode());
+        assertEquals(GrouperProperties.Distribution.Mode.LOCAL, properties.distribution().mode());
+    }
+}
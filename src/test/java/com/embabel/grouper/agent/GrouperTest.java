@@ -0,0 +1,163 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.agent.api.common.Ai;
+import com.embabel.agent.api.common.ObjectCreator;
+import com.embabel.agent.api.common.OperationContext;
+import com.embabel.agent.api.common.PromptRunner;
+import com.embabel.agent.core.AgentProcess;
+import com.embabel.agent.core.ProcessContext;
+import com.embabel.agent.prompt.persona.Actor;
+import com.embabel.agent.prompt.persona.RoleGoalBackstory;
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.FocusGroupRun;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ReactionHistory;
+import com.embabel.grouper.domain.TestParticipant;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrouperTest {
+
+    private static final int ITERATIONS = 3;
+
+    private static final Model.Message MESSAGE = new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan");
+
+    private static final Model.FocusGroup FOCUS_GROUP = new Model.FocusGroup(IntStream.range(0, 6)
+            .mapToObj(i -> (Model.Participant) new TestParticipant("P" + i, LlmOptions.withModel(i % 2 == 0 ? "a" : "b")))
+            .toList());
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final RunHandle HANDLE =
+            new RunHandle("r1", "smoking", "teens", RunOptions.DEFAULT, FocusGroupListener.NO_OP);
+
+    /**
+     * What a run did, which replaying it must reproduce
+     */
+    private record Outcome(List<List<String>> samples, List<List<String>> wordings, String summary) {
+    }
+
+    @Test
+    void testReplayReproducesRecordedRun(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("cassette.jsonl").toString();
+        var recorded = run(new GrouperProperties.Cassette(GrouperProperties.Cassette.Mode.RECORD, file, 0), llm());
+        var replayed = run(new GrouperProperties.Cassette(GrouperProperties.Cassette.Mode.REPLAY, file, 0),
+                Mockito.mock(Ai.class, invocation -> fail("Replay called a model")));
+        assertEquals(recorded, replayed);
+        assertEquals(ITERATIONS, replayed.samples().size());
+    }
+
+    /**
+     * Run a focus group through the agent's actions, as the platform would
+     */
+    private static Outcome run(GrouperProperties.Cassette cassette, Ai ai) throws IOException {
+        var properties = GrouperProperties.builder()
+                .creatives(List.of(creative("Copywriter"), creative("Strategist")))
+                .sampleFraction(0.5)
+                .strata(Model.Strata.MODEL)
+                .reactive(true)
+                .cassette(cassette)
+                .build();
+        var llmCassette = new LlmCassette(cassette);
+        var grouper = new Grouper(properties, run -> false, new CapacityScheduler(4), null,
+                new ReactivePresenter(), new RunTracer(OpenTelemetry.noop()), llmCassette, ReactionHistory.NONE);
+        var runs = new ArrayList<FocusGroupRun>();
+        var context = context(ai, runs);
+
+        var bestScoringVariants = grouper.initialize(context);
+        var positioning = new Model.Positioning(List.of(new Model.MessageVariants(MESSAGE, "Smoking stinks", "Quit now")));
+        var samples = new ArrayList<List<String>>();
+        var wordings = new ArrayList<List<String>>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            var focusGroupRun = grouper.runFocusGroup(FOCUS_GROUP, positioning, bestScoringVariants, context);
+            runs.add(focusGroupRun);
+            samples.add(focusGroupRun.sample.participants().stream().map(Model.Participant::id).toList());
+            positioning = grouper.evolvePositioning(focusGroupRun, bestScoringVariants, context);
+            wordings.add(positioning.messageVariants().getFirst().expressions().stream()
+                    .map(Model.MessageVariant::wording)
+                    .toList());
+        }
+        llmCassette.close();
+        return new Outcome(samples, wordings, bestScoringVariants.summary(5));
+    }
+
+    /**
+     * Creatives share a model, so only their persona tells their responses apart
+     */
+    @SuppressWarnings("unchecked")
+    private static Actor<RoleGoalBackstory> creative(String role) {
+        var persona = Mockito.mock(RoleGoalBackstory.class, invocation ->
+                invocation.getMethod().getName().equals("contribution") ? role : Answers.RETURNS_DEFAULTS.answer(invocation));
+        return Mockito.mock(Actor.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "getPersona" -> persona;
+            case "getLlm" -> LlmOptions.withModel("creative");
+            case "promptRunner" -> promptRunner(role);
+            default -> Answers.RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+
+    /**
+     * Models answering at random, so only replay can reproduce them
+     */
+    private static Ai llm() {
+        var participant = promptRunner(null);
+        return Mockito.mock(Ai.class, invocation -> invocation.getMethod().getReturnType() == PromptRunner.class ?
+                participant :
+                Answers.RETURNS_DEFAULTS.answer(invocation));
+    }
+
+    /**
+     * @param role role of the creative prompted, or null for participants
+     */
+    private static PromptRunner promptRunner(String role) {
+        return Mockito.mock(PromptRunner.class, invocation -> {
+            if (invocation.getMethod().getName().equals("creating")) {
+                Class<?> type = invocation.getArgument(0);
+                return Mockito.mock(ObjectCreator.class, prompted -> objectMapper.convertValue(respond(role), type));
+            }
+            return invocation.getMethod().getReturnType() == PromptRunner.class ?
+                    invocation.getMock() :
+                    Answers.RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+
+    private static Object respond(String role) {
+        var random = ThreadLocalRandom.current();
+        if (role == null) {
+            var scales = LikertRating.Scale.values();
+            return new Model.Reaction("Good", "Bad", List.of("Quote"), LikertRating.of(scales[random.nextInt(scales.length)]));
+        }
+        return Map.of(
+                "summary", role + " found " + random.nextInt(),
+                "wordings", List.of(role + " " + random.nextInt(), role + " " + random.nextInt()));
+    }
+
+    private static OperationContext context(Ai ai, List<FocusGroupRun> runs) {
+        var processContext = Mockito.mock(ProcessContext.class);
+        var agentProcess = Mockito.mock(AgentProcess.class);
+        return Mockito.mock(OperationContext.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "ai" -> ai;
+            case "last" -> invocation.getArgument(0) == RunHandle.class ? HANDLE : null;
+            case "count" -> runs.size();
+            case "getProcessContext" -> processContext;
+            case "getAgentProcess" -> agentProcess;
+            default -> Answers.RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmCassetteTest {
+
+    private static Model.Reaction reaction(LikertRating.Scale scale) {
+        return new Model.Reaction("Good", "Bad", List.of("Quote"), LikertRating.of(scale));
+    }
+
+    @Test
+    void testReplaysRecordedResponsesInOrder(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("cassette.jsonl").toString();
+        var recorder = new LlmCassette(new GrouperProperties.Cassette(GrouperProperties.Cassette.Mode.RECORD, file, 0));
+        recorder.call("same prompt", Model.Reaction.class, () -> reaction(LikertRating.Scale.AGREE));
+        recorder.call("same prompt", Model.Reaction.class, () -> reaction(LikertRating.Scale.NEUTRAL));
+        recorder.call("other prompt", Model.Reaction.class, () -> reaction(LikertRating.Scale.STRONGLY_DISAGREE));
+        recorder.close();
+
+        var player = new LlmCassette(new GrouperProperties.Cassette(GrouperProperties.Cassette.Mode.REPLAY, file, 0));
+        Model.Reaction notCalled = null;
+        assertEquals(reaction(LikertRating.Scale.STRONGLY_DISAGREE),
+                player.call("other prompt", Model.Reaction.class, () -> notCalled));
+        assertEquals(reaction(LikertRating.Scale.AGREE), player.call("same prompt", Model.Reaction.class, () -> notCalled));
+        assertEquals(reaction(LikertRating.Scale.NEUTRAL), player.call("same prompt", Model.Reaction.class, () -> notCalled));
+        assertThrows(IllegalStateException.class, () -> player.call("same prompt", Model.Reaction.class, () -> notCalled));
+        assertThrows(IllegalStateException.class, () -> player.call("new prompt", Model.Reaction.class, () -> notCalled));
+    }
+}
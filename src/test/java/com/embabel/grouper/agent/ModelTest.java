@@ -2,55 +2,29 @@ package com.embabel.grouper.agent;
 
 import com.embabel.common.ai.model.LlmOptions;
 import com.embabel.grouper.domain.FocusGroupRun;
-import com.embabel.grouper.domain.Model;
 import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.ResamplingPolicy;
+import com.embabel.grouper.domain.TestParticipant;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ModelTest {
 
+    private static final GrouperProperties PROPERTIES = GrouperProperties.builder().build();
+
     private FocusGroupRun focusGroupRun;
     private Model.MessageVariant messageVariant1;
     private Model.MessageVariant messageVariant2;
     private TestParticipant participant1;
     private TestParticipant participant2;
 
-    // Test implementation of Participant
-    private static class TestParticipant implements Model.Participant {
-        private final String name;
-        private final LlmOptions llm;
-
-        TestParticipant(String name, LlmOptions llm) {
-            this.name = name;
-            this.llm = llm;
-        }
-
-        @Override
-        public String id() {
-            return name + "-" + llm.getModel();
-        }
-
-        @Override
-        public String name() {
-            return name;
-        }
-
-        @Override
-        public LlmOptions llm() {
-            return llm;
-        }
-
-        @Override
-        public String contribution() {
-            return "Test contribution from " + name;
-        }
-    }
-
     @BeforeEach
     void setUp() {
         participant1 = new TestParticipant("Alice", LlmOptions.withAutoLlm());
@@ -443,4 +417,194 @@ class ModelTest {
         // Either variant is acceptable since they tie
         assertTrue(best.messageVariant().equals(messageVariant1) || best.messageVariant().equals(messageVariant2));
     }
+
+    @Test
+    void testStratifiedSample_KeepsEveryPersona() {
+        var focusGroup = new Model.FocusGroup(List.of(
+                new TestParticipant("Alice", LlmOptions.withModel("a")),
+                new TestParticipant("Alice", LlmOptions.withModel("b")),
+                new TestParticipant("Bob", LlmOptions.withModel("a")),
+                new TestParticipant("Bob", LlmOptions.withModel("b"))
+        ));
+
+        var sample = focusGroup.stratifiedSample(0.1, Model.Strata.PERSONA, new Random(42));
+
+        assertEquals(2, sample.participants().size());
+        assertEquals(1, sample.participants().stream().filter(p -> p.name().equals("Alice")).count());
+        assertEquals(1, sample.participants().stream().filter(p -> p.name().equals("Bob")).count());
+    }
+
+    @Test
+    void testStratifiedSample_FullFractionIsCensus() {
+        var sample = new Model.FocusGroup(List.of(participant1, participant2))
+                .stratifiedSample(1.0, Model.Strata.MODEL, new Random(42));
+        assertEquals(List.of(participant1, participant2), sample.participants());
+    }
+
+    @Test
+    void testGetAverageScoreForMessage_CensusHasNoStandardError() {
+        focusGroupRun.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(participant1, messageVariant1),
+                new Model.Reaction("Good", "Bad", List.of(), new LikertRating(LikertRating.Scale.AGREE)),
+                Instant.now()
+        ));
+        focusGroupRun.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(participant2, messageVariant1),
+                new Model.Reaction("Great", "Poor", List.of(), new LikertRating(LikertRating.Scale.STRONGLY_AGREE)),
+                Instant.now()
+        ));
+
+        var score = focusGroupRun.getAverageScoreForMessageVariant(messageVariant1);
+        assertEquals(0.875, score.normalizedScore(), 0.001);
+        assertEquals(0.0, score.standardError(), 0.001);
+    }
+
+    @Test
+    void testGetAverageScoreForMessage_SampledStrataAreWeightedUp() {
+        var aliceA = new TestParticipant("Alice", LlmOptions.withModel("a"));
+        var aliceB = new TestParticipant("Alice", LlmOptions.withModel("b"));
+        var bobA = new TestParticipant("Bob", LlmOptions.withModel("a"));
+        var bobB = new TestParticipant("Bob", LlmOptions.withModel("b"));
+        var focusGroup = new Model.FocusGroup(List.of(aliceA, aliceB, bobA, bobB));
+        var sample = new Model.ParticipantSample(focusGroup, Model.Strata.PERSONA, List.of(aliceA, bobA));
+        var run = new FocusGroupRun(sample, new Model.Positioning(List.of(
+                new Model.MessageVariants(messageVariant1.message(), List.of(messageVariant1)))));
+        assertEquals(2, run.combinations.size());
+
+        run.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(aliceA, messageVariant1),
+                new Model.Reaction("Good", "Bad", List.of(), new LikertRating(LikertRating.Scale.DISAGREE)),
+                Instant.now()
+        ));
+        run.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(bobA, messageVariant1),
+                new Model.Reaction("Great", "Poor", List.of(), new LikertRating(LikertRating.Scale.STRONGLY_AGREE)),
+                Instant.now()
+        ));
+
+        var score = run.getAverageScoreForMessageVariant(messageVariant1);
+        assertTrue(run.isComplete());
+        assertEquals(0.625, score.normalizedScore(), 0.001);
+        assertTrue(score.standardError() > 0);
+    }
+
+    @Test
+    void testGetAverageScoreForMessage_IntervalAndModelDisagreement() {
+        var aliceA = new TestParticipant("Alice", LlmOptions.withModel("a"));
+        var aliceB = new TestParticipant("Alice", LlmOptions.withModel("b"));
+        var run = new FocusGroupRun(new Model.FocusGroup(List.of(aliceA, aliceB)), new Model.Positioning(List.of(
+                new Model.MessageVariants(messageVariant1.message(), List.of(messageVariant1)))));
+
+        run.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(aliceA, messageVariant1),
+                new Model.Reaction("Good", "Bad", List.of(), new LikertRating(LikertRating.Scale.NEUTRAL)),
+                Instant.now()
+        ));
+        run.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(aliceB, messageVariant1),
+                new Model.Reaction("Great", "Poor", List.of(), new LikertRating(LikertRating.Scale.STRONGLY_AGREE)),
+                Instant.now()
+        ));
+
+        var score = run.getAverageScoreForMessageVariant(messageVariant1);
+        assertEquals(0.75, score.normalizedScore(), 0.001);
+        assertEquals(0.0625, score.variance(), 0.001);
+        assertEquals(0.5, score.modelDisagreement(), 0.001);
+        assertTrue(score.lowerBound() < score.normalizedScore());
+        assertTrue(score.upperBound() > score.normalizedScore());
+        assertTrue(score.upperBound() <= 1.0);
+    }
+
+    @Test
+    void testReport_TruncatesToTokenBudget() {
+        for (var participant : List.of(participant1, participant2)) {
+            for (var variant : List.of(messageVariant1, messageVariant2)) {
+                focusGroupRun.record(new Model.SpecificReaction(
+                        new Model.ParticipantMessagePresentation(participant, variant),
+                        new Model.Reaction("Good ".repeat(50), "Bad ".repeat(50), List.of("quote"), new LikertRating(LikertRating.Scale.AGREE)),
+                        Instant.now()
+                ));
+            }
+        }
+
+        var full = focusGroupRun.report(true, 0, 0).toString();
+        var bounded = focusGroupRun.report(true, 0, 300).toString();
+
+        assertEquals(full, focusGroupRun.infoString(true, 0));
+        assertTrue(full.contains("Second message wording"));
+        assertTrue(bounded.length() < full.length());
+        assertTrue(bounded.contains("more reactions"));
+        assertTrue(bounded.contains("Second message wording"), "Every variant keeps its section");
+    }
+
+    @Test
+    void testCarryForward_OnlyUnseenCombinationsArePending() {
+        var bestScoringVariants = new Model.BestScoringVariants(PROPERTIES);
+        for (var participant : List.of(participant1, participant2)) {
+            var reaction = new Model.SpecificReaction(
+                    new Model.ParticipantMessagePresentation(participant, messageVariant1),
+                    new Model.Reaction("Good", "Bad", List.of(), new LikertRating(LikertRating.Scale.AGREE)),
+                    Instant.now());
+            focusGroupRun.record(reaction);
+            bestScoringVariants.ledger().record(reaction);
+        }
+        bestScoringVariants.updateFrom(focusGroupRun, PROPERTIES);
+
+        // The creative proposes the same wording again, with stray whitespace
+        var repeated = new Model.MessageVariant(messageVariant1.message(), " First message wording ");
+        var next = new FocusGroupRun(focusGroupRun.focusGroup, new Model.Positioning(List.of(
+                new Model.MessageVariants(messageVariant1.message(), List.of(repeated, messageVariant2)))));
+        var pending = next.carryForward(bestScoringVariants.ledger());
+
+        assertEquals(2, pending.size());
+        assertTrue(pending.stream().allMatch(p -> p.messageVariant().equals(messageVariant2)));
+        assertEquals(2, next.getAverageScoreForMessageVariant(repeated).count());
+        assertFalse(next.isComplete());
+
+        next.record(new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(participant1, messageVariant2),
+                new Model.Reaction("Great", "Poor", List.of(), new LikertRating(LikertRating.Scale.STRONGLY_AGREE)),
+                Instant.now()));
+        bestScoringVariants.updateFrom(next, PROPERTIES);
+        assertEquals(2, bestScoringVariants.bestVariants().size(), "Repeated wording replaces its earlier score");
+    }
+
+    private static Model.SpecificReaction reaction(
+            Model.Participant participant, Model.MessageVariant variant, LikertRating.Scale scale) {
+        return new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(participant, variant),
+                new Model.Reaction("Good", "Bad", List.of(), new LikertRating(scale)),
+                Instant.now());
+    }
+
+    @Test
+    void testCanonicalWording_OnlyMergesAtTheGivenSimilarity() {
+        var bestScoringVariants = new Model.BestScoringVariants(PROPERTIES);
+        bestScoringVariants.offer(new Model.MessageVariantScore(messageVariant1, 0.75, 0.75, 2));
+
+        assertEquals(messageVariant1.wording(), bestScoringVariants.canonicalWording("first message wording!", 0.9));
+        assertEquals("First message wordings", bestScoringVariants.canonicalWording("First message wordings", 0.999));
+        assertEquals("Vaping stinks", bestScoringVariants.canonicalWording("Vaping stinks", 0.9));
+    }
+
+    @Test
+    void testRepeatedSamples_AreAveragedPerParticipant() {
+        var presentation = new Model.ParticipantMessagePresentation(participant1, messageVariant1);
+        focusGroupRun.record(reaction(participant1, messageVariant1, LikertRating.Scale.STRONGLY_DISAGREE));
+        focusGroupRun.record(reaction(participant1, messageVariant1, LikertRating.Scale.STRONGLY_AGREE));
+        focusGroupRun.record(reaction(participant2, messageVariant1, LikertRating.Scale.AGREE));
+
+        var score = focusGroupRun.getAverageScoreForMessageVariant(messageVariant1);
+        assertEquals(2, score.count(), "Participants, not samples, are counted");
+        assertEquals((0.5 + 0.75) / 2, score.averageScore(), 0.001);
+        assertEquals(0.25, score.backfireRate(), 0.001);
+        assertEquals(2, focusGroupRun.samplesOf(presentation).size());
+
+        var policy = new ResamplingPolicy(3, 0.25, 0.05);
+        assertTrue(policy.needsAnother(focusGroupRun.samplesOf(presentation), 0.5, 0.9), "Samples disagree");
+        assertFalse(policy.needsAnother(focusGroupRun.samplesOf(
+                new Model.ParticipantMessagePresentation(participant2, messageVariant1)), 0.5, 0.9), "Far from target");
+        assertTrue(policy.needsAnother(focusGroupRun.samplesOf(
+                new Model.ParticipantMessagePresentation(participant2, messageVariant1)), 0.88, 0.9), "Borderline");
+    }
 }
@@ -0,0 +1,62 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.support.PromptedParticipant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactivePresenterTest {
+
+    private final ReactivePresenter presenter = new ReactivePresenter();
+
+    @AfterEach
+    void close() {
+        presenter.close();
+    }
+
+    @Test
+    void testBoundedConcurrencyAndResampling() {
+        var message = new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan");
+        var variant = new Model.MessageVariant(message, "Smoking stinks");
+        var presentations = IntStream.range(0, 20)
+                .mapToObj(i -> new Model.ParticipantMessagePresentation(
+                        new PromptedParticipant("P" + i, LlmOptions.withModel("m"), "A teenager", 1.0), variant))
+                .toList();
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        Map<Model.ParticipantMessagePresentation, Integer> samples = new ConcurrentHashMap<>();
+
+        presenter.present(presentations, 4,
+                presentation -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    inFlight.decrementAndGet();
+                    return new Model.SpecificReaction(presentation,
+                            new Model.Reaction("Good", "Bad", List.of(), new LikertRating(LikertRating.Scale.AGREE)),
+                            Instant.now());
+                },
+                reaction -> samples.merge(reaction.participantMessagePresentation(), 1, Integer::sum),
+                // Two samples of the first participant, one of everyone else
+                presentation -> presentation == presentations.getFirst() && samples.get(presentation) < 2);
+
+        assertTrue(maxInFlight.get() <= 4);
+        assertEquals(20, samples.size());
+        assertEquals(2, samples.get(presentations.getFirst()));
+        assertEquals(21, samples.values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
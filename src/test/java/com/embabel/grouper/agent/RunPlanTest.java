@@ -0,0 +1,50 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.support.PromptedParticipant;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunPlanTest {
+
+    private final Model.Message message = new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan");
+
+    @Test
+    void testRendersOnceAndReuses() {
+        var participant = new PromptedParticipant("Aidan", LlmOptions.withModel("m"), "A teenager", 1.0);
+        var variant = new Model.MessageVariant(message, "Smoking stinks");
+        var plan = RunPlan.of(List.of(participant), new Model.MessageVariants(message, List.of(variant)));
+
+        var rendered = plan.render(variant);
+        assertSame(rendered, plan.render(new Model.MessageVariant(message, "Smoking stinks")));
+        assertTrue(rendered.prompt().contains("""
+                given your persona:
+
+                <message>Smoking stinks</message>
+
+                Assess in terms of whether it would produce the following objective in your mind:
+                <objective>stop smoking</objective>
+                Also consider whether it is effective as <deliverable>slogan</deliverable>
+                """));
+        assertEquals("Smoking stinks_", rendered.id());
+        assertSame(plan.contributionOf(participant), plan.contributionOf(participant));
+        assertEquals(participant.contribution(), plan.contributionOf(participant).contribution());
+    }
+
+    @Test
+    void testProposedWordingsAreNotRetained() {
+        var participant = new PromptedParticipant("Aidan", LlmOptions.withModel("m"), "A teenager", 1.0);
+        var messageVariants = new Model.MessageVariants(message, List.of(new Model.MessageVariant(message, "Smoking stinks")));
+        var plan = RunPlan.of(List.of(participant), messageVariants);
+
+        var proposed = new Model.MessageVariant(message, "Vaping stinks too");
+        assertEquals(plan.render(proposed), plan.render(proposed));
+        assertNotSame(plan.render(proposed), plan.render(proposed));
+        assertTrue(plan.isFor(List.of(participant), messageVariants));
+        assertFalse(plan.isFor(List.of(participant), new Model.MessageVariants(message, List.of(proposed))));
+    }
+}
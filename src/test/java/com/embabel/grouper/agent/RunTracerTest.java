@@ -0,0 +1,81 @@
+package com.embabel.grouper.agent;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.domain.FocusGroupListener;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.support.PromptedParticipant;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunTracerTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+
+    private final RunTracer tracer = new RunTracer(OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder()
+                    .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                    .build())
+            .build());
+
+    @Test
+    void testSpansNestRunIterationActionPresentation() {
+        var handle = new RunHandle("r1", "smoking", "teens", RunOptions.DEFAULT, FocusGroupListener.NO_OP);
+        var message = new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan");
+        var presentation = new Model.ParticipantMessagePresentation(
+                new PromptedParticipant("Aidan", LlmOptions.withModel("m"), "A teenager", 1.0),
+                new Model.MessageVariant(message, "Smoking stinks"));
+
+        tracer.startRun(handle);
+        tracer.startIteration(handle, 1);
+        var action = tracer.startAction(handle, "runFocusGroup");
+        var plan = RunPlan.empty();
+        tracer.tracePresentation(action, presentation, plan, 1, acquired -> {
+            acquired.run();
+            return new Model.SpecificReaction(presentation,
+                    new Model.Reaction("Good", "Bad", List.of(), LikertRating.of(LikertRating.Scale.AGREE)),
+                    Instant.now());
+        });
+        action.end();
+        tracer.startIteration(handle, 2);
+        var evolve = tracer.startAction(handle, "evolvePositioning");
+        assertThrows(IllegalStateException.class, () -> tracer.traceCreative(evolve, "c", 500, () -> {
+            throw new IllegalStateException("Creative failed");
+        }));
+        evolve.end();
+        tracer.endRun(handle, null);
+
+        Map<String, SpanData> spans = exporter.getFinishedSpanItems().stream()
+                .collect(Collectors.toMap(span -> span.getName() + span.getAttributes().asMap().getOrDefault(
+                        RunTracer.ITERATION, ""), Function.identity()));
+        assertEquals(7, spans.size());
+        var run = spans.get("run");
+        assertEquals(run.getSpanId(), spans.get("iteration1").getParentSpanId());
+        assertEquals(run.getSpanId(), spans.get("iteration2").getParentSpanId());
+        assertEquals(spans.get("iteration1").getSpanId(), spans.get("runFocusGroup").getParentSpanId());
+        var presented = spans.get("presentation");
+        assertEquals(spans.get("runFocusGroup").getSpanId(), presented.getParentSpanId());
+        assertEquals(run.getTraceId(), presented.getTraceId());
+        assertEquals("m", presented.getAttributes().get(RunTracer.MODEL));
+        var rendered = plan.render(presentation.messageVariant());
+        assertEquals(rendered.id(), presented.getAttributes().get(RunTracer.VARIANT));
+        assertEquals(plan.promptTokens(presentation.participant(), rendered),
+                presented.getAttributes().get(RunTracer.PROMPT_TOKENS));
+        assertNotNull(presented.getAttributes().get(RunTracer.QUEUED_MILLIS));
+        assertEquals(spans.get("iteration2").getSpanId(), spans.get("evolvePositioning").getParentSpanId());
+        assertEquals(StatusCode.ERROR, spans.get("creative").getStatus().getStatusCode());
+    }
+}
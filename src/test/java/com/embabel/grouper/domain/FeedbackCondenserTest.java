@@ -0,0 +1,79 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.agent.GrouperProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedbackCondenserTest {
+
+    private final Model.MessageVariant variant = new Model.MessageVariant(
+            new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan"),
+            "First message wording");
+
+    @Test
+    void testStaysWithinBudgetHoweverLargeTheGroup() {
+        var participants = new ArrayList<Model.Participant>();
+        for (int i = 0; i < 200; i++) {
+            participants.add(new TestParticipant("P" + i, LlmOptions.withModel("m")));
+        }
+        var run = new FocusGroupRun(new Model.FocusGroup(participants), new Model.Positioning(List.of(
+                new Model.MessageVariants(variant.message(), List.of(variant)))));
+        for (int i = 0; i < participants.size(); i++) {
+            run.record(new Model.SpecificReaction(
+                    new Model.ParticipantMessagePresentation(participants.get(i), variant),
+                    new Model.Reaction("Positive " + i, "Negative " + i, List.of("Quote " + i),
+                            new LikertRating(i % 10 == 0 ? LikertRating.Scale.STRONGLY_DISAGREE : LikertRating.Scale.AGREE)),
+                    Instant.now()
+            ));
+        }
+        var bestScoringVariants = new Model.BestScoringVariants(GrouperProperties.builder().build());
+        for (int i = 0; i < 20; i++) {
+            bestScoringVariants.addFinding("Finding " + i);
+        }
+
+        var condensed = new FeedbackCondenser(500, 3).condense(run, bestScoringVariants);
+
+        assertTrue(Tokens.estimate(condensed) <= 500);
+        assertTrue(condensed.contains("STRONGLY_DISAGREE"));
+        assertTrue(condensed.contains("AGREE: First message wording (180 reactions, 90% of group)"));
+        assertTrue(condensed.contains("Finding 19"));
+        assertFalse(condensed.contains("Finding 16"));
+    }
+
+    @Test
+    void testStaysWithinSmallBudgetWithManyClusters() {
+        var participants = new ArrayList<Model.Participant>();
+        for (int i = 0; i < 10; i++) {
+            participants.add(new TestParticipant("P" + i, LlmOptions.withModel("m")));
+        }
+        var variants = new ArrayList<Model.MessageVariant>();
+        for (int v = 0; v < 20; v++) {
+            variants.add(new Model.MessageVariant(variant.message(), "Wording " + v));
+        }
+        var run = new FocusGroupRun(new Model.FocusGroup(participants), new Model.Positioning(List.of(
+                new Model.MessageVariants(variant.message(), variants))));
+        var scales = LikertRating.Scale.values();
+        for (var messageVariant : variants) {
+            for (int i = 0; i < participants.size(); i++) {
+                run.record(new Model.SpecificReaction(
+                        new Model.ParticipantMessagePresentation(participants.get(i), messageVariant),
+                        new Model.Reaction("Positive " + i, "Negative " + i, List.of("Quote " + i),
+                                LikertRating.of(scales[i % scales.length])),
+                        Instant.now()));
+            }
+        }
+        var bestScoringVariants = new Model.BestScoringVariants(GrouperProperties.builder().build());
+
+        for (int budget = 50; budget <= 1000; budget += 5) {
+            var condensed = new FeedbackCondenser(budget, 3).condense(run, bestScoringVariants);
+            assertTrue(Tokens.estimate(condensed) <= budget, "Within budget of " + budget);
+        }
+        assertTrue(new FeedbackCondenser(400, 3).condense(run, bestScoringVariants).contains("omitted"));
+    }
+}
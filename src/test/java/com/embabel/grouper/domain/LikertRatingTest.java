@@ -0,0 +1,35 @@
+package com.embabel.grouper.domain;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikertRatingTest {
+
+    @Test
+    void testDeserializesToSharedInstances() throws IOException {
+        var objectMapper = new ObjectMapper();
+        var reaction = objectMapper.readValue("""
+                {"positives": "Good", "negatives": "Bad", "rating": {"scale": "AGREE"}}
+                """, Model.Reaction.class);
+        assertSame(LikertRating.of(LikertRating.Scale.AGREE), reaction.rating());
+        assertEquals(new LikertRating(LikertRating.Scale.AGREE), reaction.rating());
+        assertEquals(3, reaction.rating().code());
+        assertEquals(0.75, LikertRating.score(reaction.rating().code()));
+        assertSame(reaction.rating(), LikertRating.of(reaction.rating().code()));
+        assertEquals("{\"scale\":\"AGREE\"}", objectMapper.writeValueAsString(reaction.rating()));
+    }
+
+    @Test
+    void testRejectsRatingWithoutScale() {
+        assertThrows(IllegalArgumentException.class, () -> LikertRating.of(null));
+        assertThrows(IllegalArgumentException.class, () -> new LikertRating(null));
+        assertThrows(JsonMappingException.class, () -> new ObjectMapper().readValue("""
+                {"positives": "Good", "negatives": "Bad", "rating": {"scale": null}}
+                """, Model.Reaction.class));
+    }
+}
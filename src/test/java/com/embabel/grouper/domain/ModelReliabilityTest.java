@@ -0,0 +1,70 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.ai.model.LlmOptions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelReliabilityTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testFenceSitterIsDownWeightedOrSkipped() {
+        var reliability = new ModelReliability();
+        var variants = List.of(new Model.MessageVariant(message, "First"), new Model.MessageVariant(message, "Second"));
+        var scales = LikertRating.Scale.values();
+        for (int i = 0; i < 30; i++) {
+            var persona = "P" + i;
+            var variant = variants.get(i % 2);
+            var scale = scales[i % scales.length];
+            reliability.record(reaction(new TestParticipant(persona, LlmOptions.withModel("good")), variant, scale));
+            reliability.record(reaction(new TestParticipant(persona, LlmOptions.withModel("fence")), variant, LikertRating.Scale.NEUTRAL));
+            reliability.record(reaction(new TestParticipant(persona, LlmOptions.withModel("other")), variant, scale));
+        }
+
+        var fence = reliability.stats("fence");
+        assertEquals(0.0, fence.entropy(), 0.001);
+        assertEquals(1.0, fence.neutralShare(), 0.001);
+        assertEquals(1.0, reliability.stats("good").agreement(), 0.2);
+
+        var downweight = new ModelReliability.Policy(ModelReliability.Policy.Action.DOWNWEIGHT, 0, 0, 0, 0);
+        assertEquals(1.0, reliability.weight("good", downweight), 0.001);
+        assertEquals(ModelReliability.MIN_WEIGHT, reliability.weight("fence", downweight), 0.001,
+                "Down-weighting keeps presenting to the model");
+        var skip = new ModelReliability.Policy(ModelReliability.Policy.Action.SKIP, 0, 0, 0, 0);
+        assertEquals(1.0, reliability.weight("good", skip), 0.001);
+        assertEquals(0.0, reliability.weight("fence", skip), 0.001);
+        var off = new ModelReliability.Policy(ModelReliability.Policy.Action.OFF, 0, 0, 0, 0);
+        assertEquals(1.0, reliability.weight("fence", off), 0.001);
+    }
+
+    @Test
+    void testSkipKeepsMostInformativeModel() {
+        var reliability = new ModelReliability();
+        var variant = new Model.MessageVariant(message, "First");
+        for (int i = 0; i < 30; i++) {
+            var persona = "P" + i;
+            reliability.record(reaction(new TestParticipant(persona, LlmOptions.withModel("fence")), variant, LikertRating.Scale.NEUTRAL));
+            reliability.record(reaction(new TestParticipant(persona, LlmOptions.withModel("mostly")), variant,
+                    i % 10 == 0 ? LikertRating.Scale.AGREE : LikertRating.Scale.NEUTRAL));
+        }
+
+        var skip = new ModelReliability.Policy(ModelReliability.Policy.Action.SKIP, 0, 0, 0, 0);
+        double mostly = reliability.stats("mostly").informativeness(skip);
+        assertTrue(mostly > 0.0 && mostly < 0.5, "Both models are low-information");
+        assertEquals(0.0, reliability.weight("fence", skip), 0.001);
+        assertEquals(mostly, reliability.weight("mostly", skip), 0.001, "The best model is never skipped");
+    }
+
+    private static Model.SpecificReaction reaction(
+            Model.Participant participant, Model.MessageVariant variant, LikertRating.Scale scale) {
+        return new Model.SpecificReaction(
+                new Model.ParticipantMessagePresentation(participant, variant),
+                new Model.Reaction("Good", "Bad", List.of(), new LikertRating(scale)),
+                Instant.now());
+    }
+}
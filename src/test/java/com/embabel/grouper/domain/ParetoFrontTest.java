@@ -0,0 +1,34 @@
+package com.embabel.grouper.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParetoFrontTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testKeepsTradeOffsAndRestoresDominated() {
+        var front = new ParetoFront(List.of(Objective.WEIGHTED_MEAN, Objective.NO_BACKFIRE));
+        var popular = score("popular", 0.8, 0.2);
+        var safe = score("safe", 0.6, 0.0);
+        var worse = score("worse", 0.5, 0.1);
+        front.offer(popular);
+        front.offer(safe);
+        front.offer(worse);
+        assertEquals(List.of(popular, safe), front.front());
+
+        // Further reactions show "safe" wasn't so safe: "worse" is no longer dominated
+        var unsafe = score("safe", 0.6, 0.3);
+        front.offer(unsafe);
+        assertEquals(List.of(popular, worse), front.front());
+    }
+
+    private Model.MessageVariantScore score(String wording, double mean, double backfireRate) {
+        return new Model.MessageVariantScore(new Model.MessageVariant(message, wording),
+                mean, mean, 10, 0.0, 0.0, mean, mean, 0.0, mean, backfireRate);
+    }
+}
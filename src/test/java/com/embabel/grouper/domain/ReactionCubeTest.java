@@ -0,0 +1,47 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.ai.model.LlmOptions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactionCubeTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testSliceRollupAndCrossTab() {
+        var aidanGpt = new TestParticipant("Aidan", LlmOptions.withModel("gpt"));
+        var aidanClaude = new TestParticipant("Aidan", LlmOptions.withModel("claude"));
+        var alice = new TestParticipant("Alice", LlmOptions.withAutoLlm());
+        var first = new Model.MessageVariant(message, "First message wording");
+        var second = new Model.MessageVariant(message, "Second message wording");
+        var run = new FocusGroupRun(
+                new Model.FocusGroup(List.of(aidanGpt, aidanClaude, alice)),
+                new Model.Positioning(List.of(new Model.MessageVariants(message, List.of(first, second)))));
+        for (var participant : List.of(aidanGpt, aidanClaude, alice)) {
+            for (var variant : List.of(first, second)) {
+                var scale = participant == aidanClaude ? LikertRating.Scale.DISAGREE : LikertRating.Scale.AGREE;
+                run.record(new Model.SpecificReaction(
+                        new Model.ParticipantMessagePresentation(participant, variant),
+                        new Model.Reaction("Good", "Bad", List.of(), new LikertRating(scale)),
+                        Instant.now()));
+            }
+        }
+
+        var aidanOnFirst = run.cube()
+                .where(ReactionCube.Dimension.PERSONA, name -> name.startsWith("Aidan"))
+                .where(ReactionCube.Dimension.VARIANT, first.wording());
+        assertEquals(2, aidanOnFirst.total().count());
+        var byModel = aidanOnFirst.rollup(ReactionCube.Dimension.MODEL);
+        assertEquals(0.25, byModel.get("claude").mean(), 0.001);
+        assertEquals(0.75, byModel.get("gpt").mean(), 0.001);
+
+        var crossTab = run.cube().all().crossTab(ReactionCube.Dimension.PERSONA, ReactionCube.Dimension.RATING);
+        assertEquals(2, crossTab.get("Aidan").get("DISAGREE").count());
+        assertEquals(2, crossTab.get("Alice").get("AGREE").count());
+    }
+}
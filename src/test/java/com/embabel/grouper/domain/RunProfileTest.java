@@ -0,0 +1,38 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.ai.model.LlmOptions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunProfileTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testPercentilesAndParallelism() {
+        var alice = new TestParticipant("Alice", LlmOptions.withAutoLlm());
+        var bob = new TestParticipant("Bob", LlmOptions.withAutoLlm());
+        var first = new Model.MessageVariant(message, "First message wording");
+        var second = new Model.MessageVariant(message, "Second message wording");
+        var profile = new RunProfile(4);
+        long ms = 1_000_000;
+        // Two overlapping presentations, then one alone after a gap
+        profile.record(new Model.ParticipantMessagePresentation(alice, first), 5 * ms, 100 * ms, 200, 0, 100 * ms);
+        profile.record(new Model.ParticipantMessagePresentation(bob, first), 0, 100 * ms, 300, 50 * ms, 150 * ms);
+        profile.record(new Model.ParticipantMessagePresentation(alice, second), 0, 400 * ms, 100, 1000 * ms, 1400 * ms);
+
+        var summary = profile.summary();
+        assertEquals(3, summary.presentations());
+        assertEquals(0.6, summary.executingSeconds(), 0.001);
+        assertEquals(0.55, summary.activeSeconds(), 0.001);
+        assertEquals(0.6 / 0.55, summary.effectiveParallelism(), 0.001);
+        assertEquals(200, summary.tokensPerReaction(), 0.001);
+        var model = summary.models().getFirst();
+        assertEquals(100, model.p50Millis(), 0.001);
+        assertEquals(400, model.p99Millis(), 0.001);
+        assertEquals("Alice", summary.slowestPersonas().getFirst().name());
+        assertEquals(second.wording(), summary.slowestWordings().getFirst().name());
+        assertTrue(summary.toString().contains("Effective parallelism 1.1 of max concurrency 4"));
+    }
+}
@@ -0,0 +1,19 @@
+package com.embabel.grouper.domain;
+
+import com.embabel.common.ai.model.LlmOptions;
+
+/**
+ * Participant identified by name and model, for tests
+ */
+public record TestParticipant(String name, LlmOptions llm) implements Model.Participant {
+
+    @Override
+    public String id() {
+        return name + "-" + llm.getModel();
+    }
+
+    @Override
+    public String contribution() {
+        return "Test contribution from " + name;
+    }
+}
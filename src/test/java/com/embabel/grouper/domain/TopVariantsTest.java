@@ -0,0 +1,26 @@
+package com.embabel.grouper.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopVariantsTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testBoundedWithBothOrderingsAndArchive() {
+        var top = new TopVariants(2, Model.MessageVariantScore::averageScore);
+        top.offer(new Model.MessageVariantScore(new Model.MessageVariant(message, "a"), 0.9, 0.1, 1));
+        top.offer(new Model.MessageVariantScore(new Model.MessageVariant(message, "b"), 0.5, 0.8, 1));
+        top.offer(new Model.MessageVariantScore(new Model.MessageVariant(message, "c"), 0.7, 0.5, 1));
+        // A repeated wording replaces its earlier score
+        top.offer(new Model.MessageVariantScore(new Model.MessageVariant(message, "a "), 0.6, 0.2, 2));
+
+        assertEquals(List.of("c", "a "), top.byDecisionScore().stream().map(s -> s.messageVariant().wording()).toList());
+        assertEquals(List.of("c", "a "), top.byNormalizedScore().stream().map(s -> s.messageVariant().wording()).toList());
+        assertEquals(List.of(new TopVariants.Archived("b", 0.5, 0.8, 1)), top.archive());
+    }
+}
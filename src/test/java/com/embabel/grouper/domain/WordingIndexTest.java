@@ -0,0 +1,35 @@
+package com.embabel.grouper.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordingIndexTest {
+
+    @Test
+    void testFindsRewordingsAmongMany() {
+        var index = new WordingIndex();
+        var random = new Random(7);
+        var words = List.of("smoke", "vape", "lungs", "breath", "free", "life", "quit", "today", "stinks", "cool",
+                "money", "health", "friends", "future", "choose", "never", "start", "habit", "clean", "air");
+        for (int i = 0; i < 5000; i++) {
+            var wording = new StringBuilder();
+            for (int w = 0; w < 6; w++) {
+                wording.append(words.get(random.nextInt(words.size()))).append(' ');
+            }
+            index.add(wording.toString());
+        }
+        index.add("Smoking stinks, and so does your breath");
+        assertFalse(index.add("smoking stinks and so does your breath!"), "Same after normalization");
+
+        var nearest = index.nearest("Smoking stinks and so does your breath.", 3);
+        assertEquals("Smoking stinks, and so does your breath", nearest.getFirst().wording());
+        assertEquals(1.0, nearest.getFirst().similarity(), 0.02);
+        assertEquals(1, index.nearDuplicates("Smoking stinks, and so does ur breath", 5).size());
+        assertTrue(index.nearDuplicates("Vaping is a waste of money", 5).isEmpty());
+        assertTrue(WordingIndex.similarity("Quit today", "Quit today!") > WordingIndex.similarity("Quit today", "Start today"));
+    }
+}
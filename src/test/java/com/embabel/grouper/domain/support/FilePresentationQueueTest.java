@@ -0,0 +1,57 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.PresentationQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePresentationQueueTest {
+
+    @TempDir
+    Path directory;
+
+    private static PresentationQueue.Task task(String id) {
+        return new PresentationQueue.Task(
+                id, "run-1", "run-1", "STANDARD", 1.0, "p1", "Alice", "You are a teenager", "gpt-4.1", 0.5,
+                new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan"),
+                "Smoking stinks");
+    }
+
+    @Test
+    void testTaskIsClaimedOnceAndResultTakenOnce() {
+        var queue = new FilePresentationQueue(directory);
+        queue.submit(task("t1"));
+
+        var claimed = queue.claim().orElseThrow();
+        assertEquals(task("t1"), claimed);
+        assertTrue(queue.claim().isEmpty(), "Task should only be claimed once");
+
+        var reaction = new Model.Reaction("short", "preachy", List.of("meh"),
+                new LikertRating(LikertRating.Scale.AGREE));
+        queue.complete(new PresentationQueue.Result("t1", "run-1", reaction, 42, null));
+        var results = queue.takeResults("run-1");
+        assertEquals(1, results.size());
+        assertEquals(reaction, results.getFirst().reaction());
+        assertTrue(queue.takeResults("run-1").isEmpty(), "Results should only be taken once");
+    }
+
+    @Test
+    void testStaleClaimIsRequeued() {
+        var queue = new FilePresentationQueue(directory);
+        queue.submit(task("t1"));
+        assertTrue(queue.claim().isPresent());
+
+        queue.requeueStale(Duration.ofHours(1));
+        assertTrue(queue.claim().isEmpty(), "Recent claim should not be requeued");
+
+        queue.requeueStale(Duration.ofMillis(-1));
+        assertEquals(task("t1"), queue.claim().orElseThrow());
+    }
+}
@@ -0,0 +1,52 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.agent.GrouperProperties;
+import com.embabel.grouper.domain.FocusGroupRun;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.TestParticipant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonlReactionHistoryTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testCarryForwardAdoptsNearIdenticalPastReactions(@TempDir Path dir) throws IOException {
+        var alice = new TestParticipant("Alice", LlmOptions.withAutoLlm());
+        var bob = new TestParticipant("Bob", LlmOptions.withAutoLlm());
+        var variant = new Model.MessageVariant(message, "First message wording");
+        var properties = GrouperProperties.builder().build();
+        var file = dir.resolve("results.jsonl");
+        try (var exporter = new JsonlResultExporter(file)) {
+            var listener = exporter.forRun("earlier", "smoking", "teens");
+            listener.onReaction(new Model.SpecificReaction(
+                    new Model.ParticipantMessagePresentation(alice, variant),
+                    new Model.Reaction("Good", "Bad", List.of("Yes"), new LikertRating(LikertRating.Scale.AGREE)),
+                    Instant.now()));
+            listener.onComplete(new Model.BestScoringVariants(properties));
+        }
+        var history = new JsonlReactionHistory(file);
+        assertTrue(history.priors("smoking", "adults").reactionsOf(alice.id(), variant.wording()).isEmpty());
+
+        var bestScoringVariants = new Model.BestScoringVariants(properties, history.priors("smoking", "teens"));
+        var reworded = new Model.MessageVariant(message, "first message wording!");
+        var run = new FocusGroupRun(new Model.FocusGroup(List.of(alice, bob)), new Model.Positioning(List.of(
+                new Model.MessageVariants(message, List.of(reworded)))));
+        var pending = run.carryForward(bestScoringVariants.ledger());
+
+        assertEquals(List.of(new Model.ParticipantMessagePresentation(bob, reworded)), pending);
+        assertEquals(1, run.getAverageScoreForMessageVariant(reworded).count());
+        assertEquals(0.75, run.getAverageScoreForMessageVariant(reworded).averageScore(), 0.001);
+        assertEquals(1, bestScoringVariants.ledger().size());
+    }
+}
@@ -0,0 +1,90 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.agent.GrouperProperties;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.TestParticipant;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonlResultExporterTest {
+
+    private final Model.MessageVariant variant = new Model.MessageVariant(
+            new Model.Message("smoking", "smoking is bad", "stop smoking", "slogan"), "Smoking stinks");
+
+    private final Model.SpecificReaction reaction = new Model.SpecificReaction(
+            new Model.ParticipantMessagePresentation(new TestParticipant("Alice", LlmOptions.withModel("m")), variant),
+            new Model.Reaction("Good", "Bad", List.of("Yes"), LikertRating.of(LikertRating.Scale.AGREE)),
+            Instant.ofEpochMilli(42));
+
+    @Test
+    void testWritesRecordsByIterationWithFindingsOfThePreviousIteration(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("results.jsonl");
+        var bestScoringVariants = new Model.BestScoringVariants(GrouperProperties.builder().build());
+        try (var exporter = new JsonlResultExporter(file)) {
+            var listener = exporter.forRun("run-1", "smoking", "teens");
+            listener.onReaction(reaction);
+            listener.onScores(1, List.of(new Model.MessageVariantScore(variant, 0.75, 0.75, 1)));
+            listener.onIteration(1, bestScoringVariants);
+            // Findings on an iteration are added when evolving positioning for the next
+            bestScoringVariants.addFinding("Finding on 1");
+            listener.onReaction(reaction);
+            listener.onIteration(2, bestScoringVariants);
+            bestScoringVariants.addFinding("Finding on 2");
+            listener.onComplete(bestScoringVariants);
+        }
+
+        var records = read(file);
+        assertEquals(List.of("reaction", "score", "reaction", "finding", "finding", "profile"),
+                records.stream().map(r -> r.get("type").asText()).toList());
+        assertTrue(records.stream().allMatch(r -> r.get("run").asText().equals("run-1")
+                && r.get("message").asText().equals("smoking") && r.get("group").asText().equals("teens")));
+
+        var first = records.get(0);
+        assertEquals(1, first.get("iteration").asInt());
+        assertEquals("Smoking stinks", first.get("wording").asText());
+        assertEquals("Alice-m", first.get("participantId").asText());
+        assertEquals("AGREE", first.get("rating").asText());
+        assertEquals(42, first.get("timestamp").asLong());
+        assertEquals(1, records.get(1).get("iteration").asInt());
+        assertEquals(0.75, records.get(1).get("averageScore").asDouble());
+        assertEquals(2, records.get(2).get("iteration").asInt());
+        assertEquals("Finding on 1", records.get(3).get("finding").asText());
+        assertEquals(1, records.get(3).get("iteration").asInt());
+        assertEquals("Finding on 2", records.get(4).get("finding").asText());
+        assertEquals(2, records.get(4).get("iteration").asInt());
+    }
+
+    @Test
+    void testWriteFailureDisablesExportWithoutFailingTheRun(@TempDir Path dir) throws IOException {
+        var exporter = new JsonlResultExporter(dir.resolve("results.jsonl"));
+        var listener = exporter.forRun("run-1", "smoking", "teens");
+        exporter.close();
+
+        assertDoesNotThrow(() -> {
+            listener.onReaction(reaction);
+            listener.onIteration(1, new Model.BestScoringVariants(GrouperProperties.builder().build()));
+        });
+    }
+
+    private static List<JsonNode> read(Path file) throws IOException {
+        var objectMapper = new ObjectMapper();
+        var records = new ArrayList<JsonNode>();
+        for (var line : Files.readAllLines(file)) {
+            records.add(objectMapper.readTree(line));
+        }
+        return records;
+    }
+}
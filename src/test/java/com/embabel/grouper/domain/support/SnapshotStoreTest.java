@@ -0,0 +1,113 @@
+package com.embabel.grouper.domain.support;
+
+import com.embabel.common.ai.model.LlmOptions;
+import com.embabel.grouper.agent.GrouperProperties;
+import com.embabel.grouper.domain.FocusGroupRun;
+import com.embabel.grouper.domain.LikertRating;
+import com.embabel.grouper.domain.Model;
+import com.embabel.grouper.domain.Snapshot;
+import com.embabel.grouper.domain.TestParticipant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    private final Model.Message message = new Model.Message("msg1", "First message content", "Test objective 1", "campaign slogan");
+
+    @Test
+    void testForkRestoresScoresFindingsAndGroupReactions(@TempDir Path dir) {
+        var alice = new TestParticipant("Alice", LlmOptions.withAutoLlm());
+        var bob = new TestParticipant("Bob", LlmOptions.withAutoLlm());
+        var variant = new Model.MessageVariant(message, "First message wording");
+        var properties = GrouperProperties.builder().build();
+        var run = new FocusGroupRun(new Model.FocusGroup(List.of(alice, bob)), new Model.Positioning(List.of(
+                new Model.MessageVariants(message, List.of(variant)))));
+        var bestScoringVariants = new Model.BestScoringVariants(properties);
+        for (var participant : List.of(alice, bob)) {
+            var reaction = new Model.SpecificReaction(
+                    new Model.ParticipantMessagePresentation(participant, variant),
+                    new Model.Reaction("Good", "Bad", List.of("Yes"), LikertRating.of(LikertRating.Scale.AGREE)),
+                    Instant.now());
+            run.record(reaction);
+            bestScoringVariants.ledger().record(reaction);
+        }
+        bestScoringVariants.updateFrom(run, properties);
+        bestScoringVariants.addFinding("Teens like it");
+
+        try (var store = new SnapshotStore(dir)) {
+            store.forRun("earlier", "smoking", "teens").onIteration(1, bestScoringVariants);
+        }
+        var snapshot = SnapshotStore.read(dir.resolve("smoking-teens-earlier/iteration-1.json.gz"));
+        assertEquals(1, snapshot.iteration());
+        assertEquals(List.of(variant.wording()), snapshot.bestWordings());
+
+        // Fork with a group sharing only one participant
+        var forked = new Model.BestScoringVariants(properties);
+        snapshot.restoreInto(forked, message, List.of(alice));
+        assertEquals(bestScoringVariants.bestVariants(), forked.bestVariants());
+        assertEquals(List.of("Teens like it"), forked.findings());
+        assertEquals(1, forked.ledger().size());
+        assertEquals(LikertRating.of(LikertRating.Scale.AGREE), forked.ledger().reactions().getFirst().reaction().rating());
+    }
+
+    @Test
+    void testIterationsStoreOnlyNewReactionsAndReadFollowsChain(@TempDir Path dir) {
+        var properties = GrouperProperties.builder().build();
+        var bestScoringVariants = new Model.BestScoringVariants(properties);
+        var participants = List.of(new TestParticipant("Alice", LlmOptions.withAutoLlm()),
+                new TestParticipant("Bob", LlmOptions.withAutoLlm()));
+        try (var store = new SnapshotStore(dir)) {
+            var listener = store.forRun("chained", "smoking", "teens");
+            for (int iteration = 1; iteration <= 3; iteration++) {
+                var variant = new Model.MessageVariant(message, "Wording " + iteration);
+                for (var participant : participants) {
+                    bestScoringVariants.ledger().record(new Model.SpecificReaction(
+                            new Model.ParticipantMessagePresentation(participant, variant),
+                            new Model.Reaction("Good", "Bad", List.of("Yes"), LikertRating.of(LikertRating.Scale.AGREE)),
+                            Instant.now()));
+                }
+                listener.onIteration(iteration, bestScoringVariants);
+            }
+            listener.onComplete(bestScoringVariants);
+        }
+        var runDirectory = dir.resolve("smoking-teens-chained");
+        var third = SnapshotStore.read(runDirectory.resolve("iteration-3.json.gz"));
+        assertEquals(6, third.reactions().size());
+        assertNull(third.previous());
+        assertEquals(List.of("Wording 1", "Wording 1", "Wording 2", "Wording 2", "Wording 3", "Wording 3"),
+                third.reactions().stream().map(Snapshot.Reaction::wording).toList());
+
+        // Each file holds only what's new since the one before
+        var stored = SnapshotStore.readFile(runDirectory.resolve("iteration-3.json.gz"));
+        assertEquals(2, stored.reactions().size());
+        assertEquals("iteration-2.json.gz", stored.previous());
+        var last = SnapshotStore.readFile(runDirectory.resolve("final.json.gz"));
+        assertTrue(last.reactions().isEmpty());
+        assertEquals(6, SnapshotStore.read(runDirectory.resolve("final.json.gz")).reactions().size());
+
+        var forked = new Model.BestScoringVariants(properties);
+        third.restoreInto(forked, message, participants);
+        assertEquals(6, forked.ledger().size());
+    }
+
+    @Test
+    void testWriteFailureIsLoggedAndRunContinues(@TempDir Path dir) throws IOException {
+        // Snapshots can't be written beneath a regular file
+        var notDirectory = Files.createFile(dir.resolve("snapshots"));
+        var bestScoringVariants = new Model.BestScoringVariants(GrouperProperties.builder().build());
+        try (var store = new SnapshotStore(notDirectory)) {
+            var listener = store.forRun("failing", "smoking", "teens");
+            assertDoesNotThrow(() -> listener.onIteration(1, bestScoringVariants));
+            assertDoesNotThrow(() -> listener.onComplete(bestScoringVariants));
+        }
+        assertTrue(Files.isRegularFile(notDirectory));
+    }
+}
@@ -0,0 +1,26 @@
+package com.embabel.grouper.domain.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YmlFilesTest {
+
+    @Test
+    void testNamesMatchingGlobInAlphabeticalOrder(@TempDir Path dir) throws IOException {
+        for (var file : List.of("english_teen.yml", "english_adult.yml", "french_teen.yml", "english_notes.txt")) {
+            Files.createFile(dir.resolve(file));
+        }
+        assertEquals(List.of("english_adult", "english_teen"), YmlFiles.names(dir, "english_*"));
+        assertEquals(List.of("english_teen", "french_teen"), YmlFiles.names(dir, "*_teen"));
+        assertEquals(List.of("english_adult", "english_teen", "french_teen"), YmlFiles.names(dir, "*"));
+        assertTrue(YmlFiles.names(dir, "german_*").isEmpty());
+        assertTrue(YmlFiles.names(dir.resolve("missing"), "*").isEmpty());
+    }
+}